@@ -0,0 +1,43 @@
+package com.clearsolutions.usersapi.reactive;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Mono;
+
+/**
+ * Hands out ids in blocks taken from a database sequence, using the same block layout as Hibernate's
+ * pooled optimizer in the servlet application: a sequence value {@code hi} owns the ids
+ * {@code (hi - allocationSize, hi]}. Both applications can therefore insert into the same table.
+ */
+public class PooledSequence {
+
+    private final DatabaseClient databaseClient;
+    private final String sequenceName;
+    private final int allocationSize;
+
+    private long next;
+    private long hi;
+
+    public PooledSequence(DatabaseClient databaseClient, String sequenceName, int allocationSize) {
+        this.databaseClient = databaseClient;
+        this.sequenceName = sequenceName;
+        this.allocationSize = allocationSize;
+    }
+
+    public Mono<Long> nextId() {
+        synchronized (this) {
+            if (next != 0 && next <= hi) {
+                return Mono.just(next++);
+            }
+        }
+        return databaseClient.sql("select nextval('" + sequenceName + "')")
+                .map(row -> row.get(0, Long.class))
+                .one()
+                .map(this::startBlock);
+    }
+
+    private synchronized long startBlock(long sequenceValue) {
+        hi = sequenceValue;
+        next = Math.max(1, sequenceValue - allocationSize + 1);
+        return next++;
+    }
+}
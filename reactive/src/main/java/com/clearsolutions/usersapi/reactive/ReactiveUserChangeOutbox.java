@@ -0,0 +1,69 @@
+package com.clearsolutions.usersapi.reactive;
+
+import com.clearsolutions.usersapi.dto.ChangeOperation;
+import com.clearsolutions.usersapi.dto.UserDto;
+import com.clearsolutions.usersapi.exceptions.ResourceMappingException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+/**
+ * Appends change records to {@code user_changes} inside the caller's transaction, so the servlet
+ * application's change feed also sees writes made through this module.
+ */
+@Component
+public class ReactiveUserChangeOutbox {
+
+    // Matches the fixed allocationSize of UserChange and the increment of user_changes_seq.
+    private static final int CHANGE_ALLOCATION_SIZE = 50;
+
+    private final DatabaseClient databaseClient;
+
+    private final ObjectMapper objectMapper;
+
+    private final PooledSequence changeIds;
+
+    public ReactiveUserChangeOutbox(DatabaseClient databaseClient, ObjectMapper objectMapper) {
+        this.databaseClient = databaseClient;
+        this.objectMapper = objectMapper;
+        this.changeIds = new PooledSequence(databaseClient, "user_changes_seq", CHANGE_ALLOCATION_SIZE);
+    }
+
+    public Mono<Void> recordUpserted(ChangeOperation operation, UserDto user) {
+        return Mono.fromCallable(() -> payload(user))
+                .flatMap(payload -> record(operation, user.getId(), payload));
+    }
+
+    public Mono<Void> recordDeleted(Long id) {
+        return record(ChangeOperation.DELETED, id, null);
+    }
+
+    private Mono<Void> record(ChangeOperation operation, Long userId, String payload) {
+        return changeIds.nextId()
+                .flatMap(id -> {
+                    DatabaseClient.GenericExecuteSpec insert = databaseClient
+                            .sql("insert into user_changes (id, user_id, operation, changed_at, payload) " +
+                                    "values (:id, :userId, :operation, :changedAt, :payload)")
+                            .bind("id", id)
+                            .bind("userId", userId)
+                            .bind("operation", operation.name())
+                            .bind("changedAt", Instant.now());
+                    insert = payload != null
+                            ? insert.bind("payload", payload)
+                            : insert.bindNull("payload", String.class);
+                    return insert.then();
+                });
+    }
+
+    private String payload(UserDto user) {
+        try {
+            return objectMapper.writeValueAsString(user);
+        } catch (JsonProcessingException e) {
+            throw new ResourceMappingException("Failed to serialize user change: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.clearsolutions.usersapi.reactive;
+
+import com.clearsolutions.usersapi.dto.BatchItemResult;
+import com.clearsolutions.usersapi.dto.UserCursor;
+import com.clearsolutions.usersapi.dto.UserDto;
+import com.clearsolutions.usersapi.dto.validation.OnCreate;
+import com.clearsolutions.usersapi.dto.validation.OnParticalUpdate;
+import com.clearsolutions.usersapi.dto.validation.OnUpdate;
+import com.clearsolutions.usersapi.exceptions.InvalidRequestParametersException;
+import com.clearsolutions.usersapi.exceptions.PreconditionFailedException;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@RestController
+@RequiredArgsConstructor
+@Validated
+@RequestMapping("/api/v1/users")
+public class ReactiveUserController {
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private final ReactiveUserService userService;
+
+    @GetMapping()
+    public Mono<ResponseEntity<List<UserDto>>> findByDateOfBirthBetween(@RequestParam("from")
+                                                                        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                        @RequestParam("to")
+                                                                        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                                        @RequestParam(value = "cursor", required = false) String cursor,
+                                                                        @RequestParam(value = "limit", defaultValue = "100")
+                                                                        @Min(value = 1, message = "Limit must be at least 1.")
+                                                                        @Max(value = 1000, message = "Limit must be at most 1000.") int limit) {
+        validateRange(from, to);
+        UserCursor userCursor = cursor != null ? UserCursor.decode(cursor) : null;
+        return userService.findByDateOfBirthBetween(from, to, userCursor, limit)
+                .map(page -> {
+                    ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+                    if (page.hasNext()) {
+                        response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+                    }
+                    return response.body(page.getContent());
+                });
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<UserDto> exportByDateOfBirthBetween(@RequestParam("from")
+                                                    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                    @RequestParam("to")
+                                                    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        validateRange(from, to);
+        return userService.exportByDateOfBirthBetween(from, to);
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<UserDto>> findById(@PathVariable Long id, ServerWebExchange exchange) {
+        return userService.findById(id)
+                .map(userDto -> {
+                    String eTag = eTag(userDto);
+                    if (exchange.checkNotModified(eTag)) {
+                        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+                    }
+                    return ResponseEntity.ok().eTag(eTag).body(userDto);
+                });
+    }
+
+    @PostMapping
+    public Mono<UserDto> createUser(@Validated(OnCreate.class) @RequestBody UserDto userDto) {
+        return userService.create(userDto);
+    }
+
+    @PostMapping("/batch")
+    public Mono<List<BatchItemResult>> createUsers(@RequestBody
+                                                   @NotEmpty(message = "Batch must contain at least one user.")
+                                                   @Size(max = 1000, message = "Batch must contain at most 1000 users.")
+                                                   List<UserDto> userDtos) {
+        return userService.createAll(userDtos);
+    }
+
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<UserDto>> updateUser(@PathVariable Long id,
+                                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                    @Validated(OnUpdate.class) @RequestBody UserDto userDto) {
+        return Mono.fromCallable(() -> expectedVersion(ifMatch))
+                .flatMap(version -> userService.update(id, userDto, version.orElse(null)))
+                .map(updatedUser -> ResponseEntity.ok().eTag(eTag(updatedUser)).body(updatedUser));
+    }
+
+    @PatchMapping("/{id}")
+    public Mono<ResponseEntity<UserDto>> particularUpdateUser(@PathVariable Long id,
+                                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                              @Validated(OnParticalUpdate.class) @RequestBody UserDto userDto) {
+        return Mono.fromCallable(() -> expectedVersion(ifMatch))
+                .flatMap(version -> userService.particularUpdate(id, userDto, version.orElse(null)))
+                .map(updatedUser -> ResponseEntity.ok().eTag(eTag(updatedUser)).body(updatedUser));
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<Void> deleteById(@PathVariable Long id,
+                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return Mono.fromCallable(() -> expectedVersion(ifMatch))
+                .flatMap(version -> userService.delete(id, version.orElse(null)));
+    }
+
+    private static String eTag(UserDto userDto) {
+        return "\"" + userDto.getVersion() + "\"";
+    }
+
+    private static Optional<Long> expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return Optional.empty();
+        }
+        String eTag = ifMatch.trim();
+        if (eTag.startsWith("W/")) {
+            eTag = eTag.substring(2);
+        }
+        if (eTag.length() < 2 || !eTag.startsWith("\"") || !eTag.endsWith("\"")) {
+            throw new InvalidRequestParametersException("Invalid If-Match header");
+        }
+        try {
+            return Optional.of(Long.parseLong(eTag.substring(1, eTag.length() - 1)));
+        } catch (NumberFormatException e) {
+            throw new PreconditionFailedException(ReactiveUserService.VERSION_MISMATCH_MESSAGE);
+        }
+    }
+
+    private void validateRange(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new InvalidRequestParametersException("'from' date must be before 'to' date");
+        }
+    }
+
+}
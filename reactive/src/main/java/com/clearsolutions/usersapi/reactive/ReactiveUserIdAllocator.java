@@ -0,0 +1,24 @@
+package com.clearsolutions.usersapi.reactive;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Hands out user ids from {@code users_id_seq} in the servlet application's block layout.
+ */
+@Component
+public class ReactiveUserIdAllocator {
+
+    private final PooledSequence userIds;
+
+    public ReactiveUserIdAllocator(DatabaseClient databaseClient,
+                                   @Value("${users.id.allocation-size}") int allocationSize) {
+        this.userIds = new PooledSequence(databaseClient, "users_id_seq", allocationSize);
+    }
+
+    public Mono<Long> nextId() {
+        return userIds.nextId();
+    }
+}
@@ -0,0 +1,41 @@
+package com.clearsolutions.usersapi.reactive;
+
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.Collection;
+
+@Repository
+public interface ReactiveUserRepository extends R2dbcRepository<UserRecord, Long> {
+
+    @Query("select * from users where birth_date between :from and :to order by birth_date, id limit :limit")
+    Flux<UserRecord> findPage(@Param("from") LocalDate from,
+                              @Param("to") LocalDate to,
+                              @Param("limit") int limit);
+
+    @Query("select * from users where birth_date between :from and :to " +
+            "and (birth_date, id) > (:lastBirthDate, :lastId) " +
+            "order by birth_date, id limit :limit")
+    Flux<UserRecord> findPageAfter(@Param("from") LocalDate from,
+                                   @Param("to") LocalDate to,
+                                   @Param("lastBirthDate") LocalDate lastBirthDate,
+                                   @Param("lastId") Long lastId,
+                                   @Param("limit") int limit);
+
+    @Query("select lower(email) from users where lower(email) in (:emails)")
+    Flux<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    @Modifying
+    @Query("delete from users where id = :id")
+    Mono<Integer> deleteUserById(@Param("id") Long id);
+
+    @Modifying
+    @Query("delete from users where id = :id and version = :version")
+    Mono<Integer> deleteUserByIdAndVersion(@Param("id") Long id, @Param("version") Long version);
+}
@@ -0,0 +1,306 @@
+package com.clearsolutions.usersapi.reactive;
+
+import com.clearsolutions.usersapi.dto.BatchItemResult;
+import com.clearsolutions.usersapi.dto.ChangeOperation;
+import com.clearsolutions.usersapi.dto.CursorPage;
+import com.clearsolutions.usersapi.dto.UserCursor;
+import com.clearsolutions.usersapi.dto.UserDto;
+import com.clearsolutions.usersapi.dto.validation.OnCreate;
+import com.clearsolutions.usersapi.exceptions.ExceptionBody;
+import com.clearsolutions.usersapi.exceptions.PreconditionFailedException;
+import com.clearsolutions.usersapi.exceptions.ResourceNotFoundException;
+import com.clearsolutions.usersapi.exceptions.UserEmailAlreadyInUseException;
+import com.clearsolutions.usersapi.service.AgeRequirement;
+import io.r2dbc.postgresql.api.PostgresqlException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+public class ReactiveUserService {
+
+    public static final String VERSION_MISMATCH_MESSAGE = "User was modified by another request";
+
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    private final ReactiveUserRepository userRepository;
+
+    private final ReactiveUserIdAllocator idAllocator;
+
+    private final ReactiveUserChangeOutbox userChangeOutbox;
+
+    private final R2dbcEntityTemplate template;
+
+    private final DatabaseClient databaseClient;
+
+    private final AgeRequirement ageRequirement;
+
+    private final Validator validator;
+
+    @Transactional
+    public Mono<UserDto> create(UserDto userDto) {
+        return Mono.fromRunnable(() -> ageRequirement.check(userDto.getBirthDate()))
+                .then(insert(UserRecord.fromDto(userDto)))
+                .map(UserRecord::toDto);
+    }
+
+    @Transactional
+    public Mono<List<BatchItemResult>> createAll(List<UserDto> userDtos) {
+        BatchItemResult[] results = new BatchItemResult[userDtos.size()];
+        Map<String, Integer> candidateIndexByEmail = new LinkedHashMap<>();
+
+        for (int i = 0; i < userDtos.size(); i++) {
+            UserDto userDto = userDtos.get(i);
+            if (userDto == null) {
+                results[i] = BatchItemResult.failed(i, new ExceptionBody("User must be not null."));
+                continue;
+            }
+            Set<ConstraintViolation<UserDto>> violations = validator.validate(userDto, OnCreate.class);
+            if (!violations.isEmpty()) {
+                results[i] = BatchItemResult.failed(i, validationError(violations));
+            } else if (!ageRequirement.isSatisfiedBy(userDto.getBirthDate())) {
+                results[i] = BatchItemResult.failed(i, new ExceptionBody(ageRequirement.violationMessage()));
+            } else if (candidateIndexByEmail.putIfAbsent(userDto.getEmail().toLowerCase(Locale.ROOT), i) != null) {
+                results[i] = BatchItemResult.failed(i, new ExceptionBody("Email already in use"));
+            }
+        }
+
+        if (candidateIndexByEmail.isEmpty()) {
+            return Mono.just(Arrays.asList(results));
+        }
+
+        return userRepository.findExistingEmails(new ArrayList<>(candidateIndexByEmail.keySet()))
+                .doOnNext(existingEmail -> {
+                    int index = candidateIndexByEmail.remove(existingEmail);
+                    results[index] = BatchItemResult.failed(index, new ExceptionBody("Email already in use"));
+                })
+                .thenMany(Flux.defer(() -> Flux.fromIterable(candidateIndexByEmail.values())))
+                .concatMap(index -> insertIfEmailFree(UserRecord.fromDto(userDtos.get(index)))
+                        .map(created -> BatchItemResult.created(index, created.toDto()))
+                        .defaultIfEmpty(BatchItemResult.failed(index, new ExceptionBody("Email already in use")))
+                        .doOnNext(result -> results[index] = result))
+                .then(Mono.fromCallable(() -> Arrays.asList(results)));
+    }
+
+    @Transactional(readOnly = true)
+    public Mono<UserDto> findById(Long id) {
+        return userRepository.findById(id)
+                .map(UserRecord::toDto)
+                .switchIfEmpty(Mono.error(() -> new ResourceNotFoundException("User with this id not found")));
+    }
+
+    @Transactional
+    public Mono<UserDto> update(Long id, UserDto userDto, Long expectedVersion) {
+        return Mono.fromRunnable(() -> ageRequirement.check(userDto.getBirthDate()))
+                .then(userRepository.findById(id))
+                .switchIfEmpty(Mono.error(() -> new ResourceNotFoundException("User with this id not found")))
+                .filter(existingUser -> expectedVersion == null || expectedVersion.equals(existingUser.getVersion()))
+                .switchIfEmpty(Mono.error(() -> new PreconditionFailedException(VERSION_MISMATCH_MESSAGE)))
+                .flatMap(existingUser -> template.update(existingUser
+                        .setEmail(userDto.getEmail())
+                        .setFirstName(userDto.getFirstName())
+                        .setSurname(userDto.getSurname())
+                        .setBirthDate(userDto.getBirthDate())
+                        .setAddress(userDto.getAddress())
+                        .setPhoneNumber(userDto.getPhoneNumber())))
+                .onErrorMap(OptimisticLockingFailureException.class,
+                        e -> new PreconditionFailedException(VERSION_MISMATCH_MESSAGE))
+                .onErrorMap(DataIntegrityViolationException.class, ReactiveUserService::emailConflictOr)
+                .map(UserRecord::toDto)
+                .flatMap(updatedUser -> userChangeOutbox.recordUpserted(ChangeOperation.UPDATED, updatedUser)
+                        .thenReturn(updatedUser));
+    }
+
+    @Transactional
+    public Mono<UserDto> particularUpdate(Long id, UserDto userDto, Long expectedVersion) {
+        LocalDate dateOfBirth = userDto.getBirthDate();
+        Mono<Void> ageCheck = dateOfBirth != null
+                ? Mono.fromRunnable(() -> ageRequirement.check(dateOfBirth))
+                : Mono.empty();
+
+        return ageCheck
+                .then(patch(id, userDto, expectedVersion))
+                .onErrorMap(DataIntegrityViolationException.class, ReactiveUserService::emailConflictOr)
+                .switchIfEmpty(Mono.defer(() -> notFoundOrModified(id, expectedVersion)))
+                .map(UserRecord::toDto)
+                .flatMap(updatedUser -> userChangeOutbox.recordUpserted(ChangeOperation.UPDATED, updatedUser)
+                        .thenReturn(updatedUser));
+    }
+
+    @Transactional
+    public Mono<Void> delete(Long id, Long expectedVersion) {
+        Mono<Integer> deleted = expectedVersion != null
+                ? userRepository.deleteUserByIdAndVersion(id, expectedVersion)
+                : userRepository.deleteUserById(id);
+        return deleted
+                .flatMap(count -> count == 0
+                        ? notFoundOrModified(id, expectedVersion)
+                        : userChangeOutbox.recordDeleted(id));
+    }
+
+    @Transactional(readOnly = true)
+    public Mono<CursorPage<UserDto>> findByDateOfBirthBetween(LocalDate from, LocalDate to, UserCursor cursor, int limit) {
+        Flux<UserRecord> users = cursor == null
+                ? userRepository.findPage(from, to, limit + 1)
+                : userRepository.findPageAfter(from, to, cursor.getBirthDate(), cursor.getId(), limit + 1);
+
+        return users.map(UserRecord::toDto)
+                .collectList()
+                .map(page -> {
+                    boolean hasNext = page.size() > limit;
+                    List<UserDto> content = hasNext ? page.subList(0, limit) : page;
+                    String nextCursor = hasNext ? UserCursor.after(content.get(limit - 1)).encode() : null;
+                    return new CursorPage<>(content, nextCursor);
+                });
+    }
+
+    @Transactional(readOnly = true)
+    public Flux<UserDto> exportByDateOfBirthBetween(LocalDate from, LocalDate to) {
+        return databaseClient.sql("select * from users where birth_date between :from and :to order by birth_date, id")
+                .filter(statement -> statement.fetchSize(STREAM_FETCH_SIZE))
+                .bind("from", from)
+                .bind("to", to)
+                .map((row, metadata) -> template.getConverter().read(UserRecord.class, row, metadata))
+                .all()
+                .map(UserRecord::toDto);
+    }
+
+    private Mono<UserRecord> insert(UserRecord userRecord) {
+        return idAllocator.nextId()
+                .flatMap(id -> template.insert(userRecord.setId(id)))
+                .onErrorMap(DataIntegrityViolationException.class, ReactiveUserService::emailConflictOr)
+                .flatMap(this::recordCreated);
+    }
+
+    /**
+     * Inserts the user unless its email is taken, in which case it completes empty. Skipping the row
+     * instead of failing keeps the transaction usable for the rest of a batch.
+     */
+    private Mono<UserRecord> insertIfEmailFree(UserRecord userRecord) {
+        return idAllocator.nextId()
+                .flatMap(id -> {
+                    DatabaseClient.GenericExecuteSpec insert = databaseClient.sql("insert into users " +
+                                    "(id, email, first_name, surname, birth_date, address, phone_number, version) " +
+                                    "values (:id, :email, :firstName, :surname, :birthDate, :address, :phoneNumber, 0) " +
+                                    "on conflict ((lower(email))) do nothing returning *")
+                            .bind("id", id)
+                            .bind("email", userRecord.getEmail())
+                            .bind("firstName", userRecord.getFirstName())
+                            .bind("surname", userRecord.getSurname())
+                            .bind("birthDate", userRecord.getBirthDate());
+                    insert = bindNullable(insert, "address", userRecord.getAddress());
+                    insert = bindNullable(insert, "phoneNumber", userRecord.getPhoneNumber());
+                    return insert
+                            .map((row, metadata) -> template.getConverter().read(UserRecord.class, row, metadata))
+                            .one();
+                })
+                .flatMap(this::recordCreated);
+    }
+
+    private Mono<UserRecord> recordCreated(UserRecord created) {
+        return userChangeOutbox.recordUpserted(ChangeOperation.CREATED, created.toDto())
+                .thenReturn(created);
+    }
+
+    private static DatabaseClient.GenericExecuteSpec bindNullable(DatabaseClient.GenericExecuteSpec spec,
+                                                                 String name, String value) {
+        return value != null ? spec.bind(name, value) : spec.bindNull(name, String.class);
+    }
+
+    private static Throwable emailConflictOr(DataIntegrityViolationException e) {
+        return isEmailConflict(e) ? new UserEmailAlreadyInUseException("Email already in use") : e;
+    }
+
+    private static boolean isEmailConflict(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof PostgresqlException postgresqlException) {
+                return postgresqlException.getErrorDetails().getConstraintName()
+                        .filter(UserRecord.EMAIL_UNIQUE_INDEX::equalsIgnoreCase)
+                        .isPresent();
+            }
+        }
+        return false;
+    }
+
+    private Mono<UserRecord> patch(Long id, UserDto changes, Long expectedVersion) {
+        Map<String, Object> columns = changedColumns(changes);
+        if (columns.isEmpty()) {
+            return userRepository.findById(id)
+                    .filter(user -> expectedVersion == null || expectedVersion.equals(user.getVersion()));
+        }
+
+        String assignments = columns.keySet().stream()
+                .map(column -> column + " = :" + column)
+                .collect(Collectors.joining(", "));
+        String versionCheck = expectedVersion != null ? " and version = :version" : "";
+        DatabaseClient.GenericExecuteSpec update = databaseClient
+                .sql("update users set " + assignments + ", version = version + 1 where id = :id" + versionCheck
+                        + " returning *")
+                .bind("id", id);
+        if (expectedVersion != null) {
+            update = update.bind("version", expectedVersion);
+        }
+        for (Map.Entry<String, Object> column : columns.entrySet()) {
+            update = update.bind(column.getKey(), column.getValue());
+        }
+        return update
+                .map((row, metadata) -> template.getConverter().read(UserRecord.class, row, metadata))
+                .one();
+    }
+
+    private <T> Mono<T> notFoundOrModified(Long id, Long expectedVersion) {
+        if (expectedVersion == null) {
+            return Mono.error(new ResourceNotFoundException("User with this id not found"));
+        }
+        return userRepository.existsById(id)
+                .flatMap(exists -> Mono.error(exists
+                        ? new PreconditionFailedException(VERSION_MISMATCH_MESSAGE)
+                        : new ResourceNotFoundException("User with this id not found")));
+    }
+
+    private Map<String, Object> changedColumns(UserDto changes) {
+        Map<String, Object> columns = new LinkedHashMap<>();
+        putIfPresent(columns, "email", changes.getEmail());
+        putIfPresent(columns, "first_name", changes.getFirstName());
+        putIfPresent(columns, "surname", changes.getSurname());
+        putIfPresent(columns, "birth_date", changes.getBirthDate());
+        putIfPresent(columns, "address", changes.getAddress());
+        putIfPresent(columns, "phone_number", changes.getPhoneNumber());
+        return columns;
+    }
+
+    private void putIfPresent(Map<String, Object> columns, String column, Object value) {
+        if (value != null) {
+            columns.put(column, value);
+        }
+    }
+
+    private ExceptionBody validationError(Set<ConstraintViolation<UserDto>> violations) {
+        ExceptionBody exceptionBody = new ExceptionBody("Validation failed.");
+        exceptionBody.setErrors(violations.stream()
+                .collect(Collectors.toMap(
+                        violation -> violation.getPropertyPath().toString(),
+                        ConstraintViolation::getMessage,
+                        (first, second) -> first)));
+        return exceptionBody;
+    }
+}
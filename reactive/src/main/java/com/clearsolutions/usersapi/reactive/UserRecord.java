@@ -0,0 +1,52 @@
+package com.clearsolutions.usersapi.reactive;
+
+import com.clearsolutions.usersapi.dto.UserDto;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDate;
+
+@Data
+@Accessors(chain = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("users")
+public class UserRecord {
+
+    /**
+     * Unique index on {@code lower(email)}, created by the servlet application's V1 migration.
+     */
+    public static final String EMAIL_UNIQUE_INDEX = "ux_users_email_lower";
+
+    @Id
+    private Long id;
+
+    private String email;
+
+    private String firstName;
+
+    private String surname;
+
+    private LocalDate birthDate;
+
+    private String address;
+
+    private String phoneNumber;
+
+    @Version
+    private Long version;
+
+    public static UserRecord fromDto(UserDto dto) {
+        return new UserRecord(dto.getId(), dto.getEmail(), dto.getFirstName(), dto.getSurname(),
+                dto.getBirthDate(), dto.getAddress(), dto.getPhoneNumber(), null);
+    }
+
+    public UserDto toDto() {
+        return new UserDto(id, email, firstName, surname, birthDate, address, phoneNumber, version);
+    }
+}
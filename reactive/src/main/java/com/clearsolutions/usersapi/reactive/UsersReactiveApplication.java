@@ -0,0 +1,16 @@
+package com.clearsolutions.usersapi.reactive;
+
+import com.clearsolutions.usersapi.service.AgeRequirement;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Import;
+
+@SpringBootApplication
+@Import(AgeRequirement.class)
+public class UsersReactiveApplication {
+
+    public static void main(String[] args) {
+        SpringApplication.run(UsersReactiveApplication.class, args);
+    }
+
+}
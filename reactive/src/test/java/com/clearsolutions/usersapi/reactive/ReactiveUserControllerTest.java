@@ -0,0 +1,157 @@
+package com.clearsolutions.usersapi.reactive;
+
+import com.clearsolutions.usersapi.dto.CursorPage;
+import com.clearsolutions.usersapi.dto.UserCursor;
+import com.clearsolutions.usersapi.dto.UserDto;
+import com.clearsolutions.usersapi.exceptions.PreconditionFailedException;
+import com.clearsolutions.usersapi.exceptions.ResourceNotFoundException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.mockito.Mockito.when;
+
+@WebFluxTest(ReactiveUserController.class)
+public class ReactiveUserControllerTest {
+    @Autowired
+    private WebTestClient webTestClient;
+    @MockBean
+    private ReactiveUserService userService;
+    private static final Long ID = 1L;
+    private static final LocalDate DATE_FROM = LocalDate.of(1999, 1, 1);
+    private static final LocalDate DATE_TO = LocalDate.of(2005, 1, 1);
+    private static final int DEFAULT_LIMIT = 100;
+
+    private UserDto userDto = new UserDto()
+            .setId(1L)
+            .setEmail("test@gmail.com")
+            .setFirstName("TestName")
+            .setSurname("TestSurname")
+            .setBirthDate(LocalDate.of(1999, 9, 9))
+            .setAddress("TestAddress")
+            .setPhoneNumber("999-999-999")
+            .setVersion(3L);
+
+    @Test
+    void findByDateOfBirthBetween() {
+        String nextCursor = UserCursor.after(userDto).encode();
+        when(userService.findByDateOfBirthBetween(DATE_FROM, DATE_TO, null, DEFAULT_LIMIT))
+                .thenReturn(Mono.just(new CursorPage<>(List.of(userDto), nextCursor)));
+
+        webTestClient.get()
+                .uri("/api/v1/users?from={from}&to={to}", DATE_FROM, DATE_TO)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(ReactiveUserController.NEXT_CURSOR_HEADER, nextCursor)
+                .expectBodyList(UserDto.class).containsExactly(userDto);
+    }
+
+    @Test
+    void findByDateOfBirthBetweenWithInvalidRange() {
+        webTestClient.get()
+                .uri("/api/v1/users?from={from}&to={to}", DATE_TO, DATE_FROM)
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("'from' date must be before 'to' date");
+    }
+
+    @Test
+    void exportByDateOfBirthBetween() {
+        when(userService.exportByDateOfBirthBetween(DATE_FROM, DATE_TO)).thenReturn(Flux.just(userDto, userDto));
+
+        webTestClient.get()
+                .uri("/api/v1/users?from={from}&to={to}", DATE_FROM, DATE_TO)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(UserDto.class).hasSize(2);
+    }
+
+    @Test
+    void findByIdNotFound() {
+        when(userService.findById(ID))
+                .thenReturn(Mono.error(new ResourceNotFoundException("User with this id not found")));
+
+        webTestClient.get()
+                .uri("/api/v1/users/{id}", ID)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody().jsonPath("$.message").isEqualTo("User with this id not found");
+    }
+
+    @Test
+    void createUserWithoutRequiredFields() {
+        webTestClient.post()
+                .uri("/api/v1/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new UserDto().setAddress("TestAddress"))
+                .exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("Validation failed.");
+    }
+
+    @Test
+    void findByIdReturnsETagAndNotModified() {
+        when(userService.findById(ID)).thenReturn(Mono.just(userDto));
+
+        webTestClient.get()
+                .uri("/api/v1/users/{id}", ID)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"3\"");
+
+        webTestClient.get()
+                .uri("/api/v1/users/{id}", ID)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"3\"")
+                .exchange()
+                .expectStatus().isNotModified();
+    }
+
+    @Test
+    void particularUpdateWithIfMatch() {
+        UserDto changes = new UserDto().setFirstName("NewName");
+        when(userService.particularUpdate(ID, changes, 3L)).thenReturn(Mono.just(userDto.setVersion(4L)));
+
+        webTestClient.patch()
+                .uri("/api/v1/users/{id}", ID)
+                .header(HttpHeaders.IF_MATCH, "\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(changes)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"4\"");
+    }
+
+    @Test
+    void deleteById() {
+        when(userService.delete(ID, null)).thenReturn(Mono.empty());
+
+        webTestClient.delete()
+                .uri("/api/v1/users/{id}", ID)
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    void deleteByIdWithStaleIfMatch() {
+        when(userService.delete(ID, 2L))
+                .thenReturn(Mono.error(new PreconditionFailedException(ReactiveUserService.VERSION_MISMATCH_MESSAGE)));
+
+        webTestClient.delete()
+                .uri("/api/v1/users/{id}", ID)
+                .header(HttpHeaders.IF_MATCH, "\"2\"")
+                .exchange()
+                .expectStatus().isEqualTo(412)
+                .expectBody().jsonPath("$.message").isEqualTo(ReactiveUserService.VERSION_MISMATCH_MESSAGE);
+    }
+}
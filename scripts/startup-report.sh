@@ -0,0 +1,70 @@
+#!/usr/bin/env bash
+# Starts every available build variant of the service once and reports its startup time and resident
+# memory. Needs DB_URL, DB_USERNAME and DB_PASSWORD pointing at a migrated database, and the variants
+# built beforehand:
+#   jvm         ./gradlew bootJar
+#   jvm-aot     ./gradlew -Paot bootJar
+#   cds         ./gradlew cdsArchive           (cds-aot: ./gradlew -Paot cdsArchive)
+#   native      ./gradlew -Pnative nativeCompile
+# RSS is the resident set size once the application reports it has started, and its peak (VmHWM).
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+PORT=${PORT:-18080}
+TIMEOUT_SECONDS=${TIMEOUT_SECONDS:-120}
+LOG=$(mktemp)
+trap 'rm -f "$LOG"' EXIT
+
+boot_jar=$(ls build/libs/users-api-*.jar 2>/dev/null | grep -v -- '-plain\.jar$' | head -n 1 || true)
+cds_archive=build/cds/users-api.jsa
+cds_classpath=$(ls build/cds/lib/*.jar 2>/dev/null | LC_ALL=C sort -t/ -k4 | paste -sd: - || true)
+native_binary=build/native/nativeCompile/users-api
+
+run() {
+    local variant=$1
+    shift
+    "$@" --server.port="$PORT" >"$LOG" 2>&1 &
+    local pid=$!
+    local waited=0
+    until grep -q 'Started UsersApiApplication' "$LOG"; do
+        if ! kill -0 "$pid" 2>/dev/null || [ "$waited" -ge $((TIMEOUT_SECONDS * 10)) ]; then
+            printf '%-10s failed to start, see output below\n' "$variant"
+            tail -n 20 "$LOG"
+            kill "$pid" 2>/dev/null || true
+            return
+        fi
+        sleep 0.1
+        waited=$((waited + 1))
+    done
+    local started rss hwm
+    started=$(grep -o 'process running for [0-9.]*' "$LOG" | grep -o '[0-9.]*$')
+    rss=$(awk '/VmRSS/ {print $2}' "/proc/$pid/status")
+    hwm=$(awk '/VmHWM/ {print $2}' "/proc/$pid/status")
+    printf '%-10s %10ss %10d MB %10d MB\n' "$variant" "$started" $((rss / 1024)) $((hwm / 1024))
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+}
+
+printf '%-10s %11s %13s %13s\n' variant startup rss 'peak rss'
+
+if [ -n "$boot_jar" ]; then
+    run jvm java -jar "$boot_jar"
+    if unzip -l "$boot_jar" | grep -q '__ApplicationContextInitializer'; then
+        run jvm-aot java -Dspring.aot.enabled=true -jar "$boot_jar"
+    fi
+fi
+
+if [ -f "$cds_archive" ]; then
+    if [ -n "$(ls build/cds/lib/*-aot.jar 2>/dev/null)" ]; then
+        run cds-aot java -XX:SharedArchiveFile="$cds_archive" -Dspring.aot.enabled=true \
+            -cp "$cds_classpath" com.clearsolutions.usersapi.UsersApiApplication
+    else
+        run cds java -XX:SharedArchiveFile="$cds_archive" \
+            -cp "$cds_classpath" com.clearsolutions.usersapi.UsersApiApplication
+    fi
+fi
+
+if [ -x "$native_binary" ]; then
+    run native "$native_binary"
+fi
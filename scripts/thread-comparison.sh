@@ -0,0 +1,31 @@
+#!/usr/bin/env bash
+# Runs the load test once with platform and once with virtual request threads, against an embedded
+# Postgres seeded with the same generated users each time, and prints throughput, p50 and p99 per
+# endpoint side by side. RATE should be high enough to exhaust Tomcat's 200 platform threads; the full
+# reports and .hgrm files are kept under build/loadtest/threads-<mode>.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+RATE=${RATE:-2000}
+USERS=${USERS:-1000000}
+SEED=${SEED:-42}
+WARMUP=${WARMUP:-30s}
+DURATION=${DURATION:-120s}
+MAX_IN_FLIGHT=${MAX_IN_FLIGHT:-10000}
+
+for mode in platform virtual; do
+    output=build/loadtest/threads-$mode
+    mkdir -p "$output"
+    ./gradlew -q loadtest -PloadtestArgs="--threads=$mode --users=$USERS --seed=$SEED --rate=$RATE \
+--warmup=$WARMUP --duration=$DURATION --max-in-flight=$MAX_IN_FLIGHT --output=$output" | tee "$output/report.txt"
+done
+
+printf '\n%-9s %-8s %9s %9s %9s %7s %7s %7s %7s\n' threads endpoint 'req/s' 'p50 ms' 'p99 ms' 429 5xx failed dropped
+for mode in platform virtual; do
+    awk -v mode="$mode" '
+        /^endpoint/ { table = 1; next }
+        /^Histograms/ { table = 0 }
+        table && NF == 13 { printf "%-9s %-8s %9s %9s %9s %7s %7s %7s %7s\n", mode, $1, $3, $4, $6, $9, $11, $12, $13 }
+    ' "build/loadtest/threads-$mode/report.txt"
+done
@@ -0,0 +1,57 @@
+package com.clearsolutions.usersapi.benchmark;
+
+import com.clearsolutions.usersapi.dto.UserDto;
+import com.clearsolutions.usersapi.entity.User;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+final class BenchmarkUsers {
+
+    static final LocalDate FIRST_BIRTH_DATE = LocalDate.of(1950, 1, 1);
+    static final int BIRTH_DATE_SPREAD_DAYS = 50 * 365;
+
+    private BenchmarkUsers() {
+    }
+
+    static UserDto dto(long sequence) {
+        return new UserDto()
+                .setId(sequence)
+                .setEmail("user" + sequence + "@example.com")
+                .setFirstName("Name" + sequence)
+                .setSurname("Surname" + sequence)
+                .setBirthDate(FIRST_BIRTH_DATE.plusDays(sequence % BIRTH_DATE_SPREAD_DAYS))
+                .setAddress(sequence + " Benchmark Street")
+                .setPhoneNumber("+380" + (500000000 + sequence % 100000000));
+    }
+
+    static List<UserDto> dtos(long firstSequence, int count) {
+        List<UserDto> dtos = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            dtos.add(dto(firstSequence + i));
+        }
+        return dtos;
+    }
+
+    static User entity(long sequence) {
+        UserDto dto = dto(sequence);
+        return User.builder()
+                .id(dto.getId())
+                .email(dto.getEmail())
+                .firstName(dto.getFirstName())
+                .surname(dto.getSurname())
+                .birthDate(dto.getBirthDate())
+                .address(dto.getAddress())
+                .phoneNumber(dto.getPhoneNumber())
+                .build();
+    }
+
+    static List<User> entities(int count) {
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            users.add(entity(i));
+        }
+        return users;
+    }
+}
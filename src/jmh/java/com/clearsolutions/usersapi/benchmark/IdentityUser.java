@@ -0,0 +1,72 @@
+package com.clearsolutions.usersapi.benchmark;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
+
+import java.time.LocalDate;
+
+/**
+ * Copy of the users mapping with an IDENTITY id, the baseline the pooled sequence is measured against.
+ * It lives in its own schema so Flyway, which owns {@code public}, leaves it alone.
+ */
+@Entity
+@Table(schema = IdentityUser.SCHEMA, name = "identity_users")
+public class IdentityUser {
+
+    static final String SCHEMA = "bench";
+
+    static final String DDL = """
+            create schema bench;
+            create table bench.identity_users (
+                id           bigint generated by default as identity primary key,
+                email        varchar(255) not null,
+                first_name   varchar(255) not null,
+                surname      varchar(255) not null,
+                birth_date   date         not null,
+                address      varchar(255),
+                phone_number varchar(255),
+                version      bigint       not null
+            );
+            """;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String email;
+
+    @Column(nullable = false)
+    private String firstName;
+
+    @Column(nullable = false)
+    private String surname;
+
+    @Column(nullable = false)
+    private LocalDate birthDate;
+
+    private String address;
+
+    private String phoneNumber;
+
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
+    protected IdentityUser() {
+    }
+
+    IdentityUser(long sequence) {
+        this.email = "identity" + sequence + "@example.com";
+        this.firstName = "Name" + sequence;
+        this.surname = "Surname" + sequence;
+        this.birthDate = BenchmarkUsers.FIRST_BIRTH_DATE.plusDays(sequence % BenchmarkUsers.BIRTH_DATE_SPREAD_DAYS);
+        this.address = sequence + " Benchmark Street";
+        this.phoneNumber = "+380" + (500000000 + sequence % 100000000);
+    }
+}
@@ -0,0 +1,217 @@
+package com.clearsolutions.usersapi.benchmark;
+
+import com.clearsolutions.usersapi.UsersApiApplication;
+import com.clearsolutions.usersapi.dto.BatchItemResult;
+import com.clearsolutions.usersapi.dto.CursorPage;
+import com.clearsolutions.usersapi.dto.UserDto;
+import com.clearsolutions.usersapi.entity.User;
+import com.clearsolutions.usersapi.mapper.UserMapper;
+import com.clearsolutions.usersapi.repository.UserRepository;
+import com.clearsolutions.usersapi.service.UserService;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.jpa.HibernateHints;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * End-to-end service flows against an embedded Postgres seeded with {@value #SEEDED_USERS} users.
+ * <p>
+ * {@code persistSequenceIds} and {@code persistIdentityIds} isolate the id strategy: both persist the same
+ * rows in one transaction, through the users sequence and through the IDENTITY column of
+ * {@link IdentityUser}. With IDENTITY, Hibernate has to run each insert on its own to learn the id, so
+ * JDBC batching is lost.
+ * <p>
+ * The {@code ...Entities} variants read the same rows as managed entities and map them with
+ * {@link UserMapper#toDto}, the path the DTO projections replaced. Run them with {@code -prof gc} next to
+ * {@code findLargePageDtos} and {@code exportRange} to see the allocation saved by skipping hydration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UserFlowBenchmark {
+
+    static final int SEEDED_USERS = 100_000;
+    static final int WRITE_BATCH = 1000;
+
+    private static final LocalDate RANGE_FROM = BenchmarkUsers.FIRST_BIRTH_DATE;
+    private static final LocalDate RANGE_TO = LocalDate.of(1960, 1, 1);
+    private static final LocalDate EXPORT_TO = LocalDate.of(2000, 1, 1);
+    private static final int LARGE_PAGE = 1000;
+
+    private final AtomicLong sequence = new AtomicLong(SEEDED_USERS);
+
+    private EmbeddedPostgres postgres;
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private UserMapper userMapper;
+    private EntityManager entityManager;
+    private TransactionTemplate transaction;
+    private TransactionTemplate readOnlyTransaction;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SQLException {
+        postgres = EmbeddedPostgres.start();
+        try (Connection connection = postgres.getPostgresDatabase().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute(IdentityUser.DDL);
+        }
+        context = new SpringApplicationBuilder(UsersApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                        "spring.datasource.username=postgres",
+                        "spring.datasource.password=postgres",
+                        "logging.level.root=warn")
+                .run();
+        userService = context.getBean(UserService.class);
+        userMapper = context.getBean(UserMapper.class);
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(
+                context.getBean(EntityManagerFactory.class));
+        transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTransaction.setReadOnly(true);
+
+        for (int first = 0; first < SEEDED_USERS; first += WRITE_BATCH) {
+            userService.createAll(BenchmarkUsers.dtos(first, WRITE_BATCH));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        postgres.close();
+    }
+
+    @Benchmark
+    public UserDto create() {
+        return userService.create(userMapper.toEntity(BenchmarkUsers.dto(sequence.incrementAndGet()).setId(null)));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WRITE_BATCH)
+    public void createOneByOne(Blackhole blackhole) {
+        for (int i = 0; i < WRITE_BATCH; i++) {
+            blackhole.consume(create());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WRITE_BATCH)
+    public List<BatchItemResult> createBatch() {
+        return userService.createAll(BenchmarkUsers.dtos(sequence.getAndAdd(WRITE_BATCH) + 1, WRITE_BATCH));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WRITE_BATCH)
+    public void persistSequenceIds() {
+        long first = sequence.getAndAdd(WRITE_BATCH) + 1;
+        transaction.executeWithoutResult(status -> {
+            for (int i = 0; i < WRITE_BATCH; i++) {
+                entityManager.persist(BenchmarkUsers.entity(first + i).setId(null));
+            }
+        });
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WRITE_BATCH)
+    public void persistIdentityIds() {
+        long first = sequence.getAndAdd(WRITE_BATCH) + 1;
+        transaction.executeWithoutResult(status -> {
+            for (int i = 0; i < WRITE_BATCH; i++) {
+                entityManager.persist(new IdentityUser(first + i));
+            }
+        });
+    }
+
+    @Benchmark
+    public UserDto particularUpdate() {
+        long id = 1 + sequence.get() % SEEDED_USERS;
+        return userService.particularUpdate(id, userMapper.toEntity(new UserDto()
+                .setFirstName("Patched" + id)
+                .setBirthDate(LocalDate.of(1980, 1, 1))), null);
+    }
+
+    @Benchmark
+    public CursorPage<UserDto> findFirstPage() {
+        return userService.findByDateOfBirthBetween(RANGE_FROM, RANGE_TO, null, 100);
+    }
+
+    @Benchmark
+    public CursorPage<UserDto> findLargePage() {
+        return userService.findByDateOfBirthBetween(RANGE_FROM, RANGE_TO, null, LARGE_PAGE);
+    }
+
+    @Benchmark
+    public List<UserDto> findLargePageDtos() {
+        return readOnlyTransaction.execute(status -> entityManager.createQuery(UserRepository.USER_DTO_SELECT +
+                        "where u.birthDate between :from and :to order by u.birthDate, u.id", UserDto.class)
+                .setParameter("from", RANGE_FROM)
+                .setParameter("to", RANGE_TO)
+                .setMaxResults(LARGE_PAGE + 1)
+                .getResultList());
+    }
+
+    @Benchmark
+    public List<UserDto> findLargePageEntities() {
+        return readOnlyTransaction.execute(status -> userMapper.toDto(entityManager.createQuery(
+                        "select u from User u where u.birthDate between :from and :to order by u.birthDate, u.id",
+                        User.class)
+                .setParameter("from", RANGE_FROM)
+                .setParameter("to", RANGE_TO)
+                .setMaxResults(LARGE_PAGE + 1)
+                .getResultList()));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void exportRange(Blackhole blackhole) {
+        userService.exportByDateOfBirthBetween(RANGE_FROM, EXPORT_TO, blackhole::consume);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void exportRangeEntities(Blackhole blackhole) {
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<User> users = entityManager.createQuery(
+                            "select u from User u where u.birthDate between :from and :to order by u.birthDate, u.id",
+                            User.class)
+                    .setParameter("from", RANGE_FROM)
+                    .setParameter("to", EXPORT_TO)
+                    .setHint(HibernateHints.HINT_FETCH_SIZE, 500)
+                    .getResultStream()) {
+                users.forEach(user -> {
+                    blackhole.consume(userMapper.toDto(user));
+                    // Keeps the persistence context from growing, as a streaming export over entities would.
+                    entityManager.detach(user);
+                });
+            }
+        });
+    }
+}
@@ -0,0 +1,60 @@
+package com.clearsolutions.usersapi.benchmark;
+
+import com.clearsolutions.usersapi.dto.UserDto;
+import com.clearsolutions.usersapi.entity.User;
+import com.clearsolutions.usersapi.mapper.UserMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UserMapperBenchmark {
+
+    @Param({"1", "100", "10000"})
+    private int size;
+
+    private final UserMapper userMapper = new UserMapper();
+
+    private User user;
+    private UserDto userDto;
+    private List<User> users;
+    private List<UserDto> userDtos;
+
+    @Setup
+    public void setUp() {
+        user = BenchmarkUsers.entity(1);
+        userDto = BenchmarkUsers.dto(1);
+        users = BenchmarkUsers.entities(size);
+        userDtos = BenchmarkUsers.dtos(0, size);
+    }
+
+    @Benchmark
+    public UserDto toDto() {
+        return userMapper.toDto(user);
+    }
+
+    @Benchmark
+    public User toEntity() {
+        return userMapper.toEntity(userDto);
+    }
+
+    @Benchmark
+    public List<UserDto> toDtoList() {
+        return userMapper.toDto(users);
+    }
+
+    @Benchmark
+    public List<User> toEntityList() {
+        return userMapper.toEntity(userDtos);
+    }
+}
@@ -0,0 +1,143 @@
+package com.clearsolutions.usersapi.benchmark;
+
+import com.clearsolutions.usersapi.codec.UserColumnarCodec;
+import com.clearsolutions.usersapi.dto.UserDto;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encoding cost per format. The encoded size of each format is reported as the {@code rawBytes} and
+ * {@code gzipBytes} secondary results, so it lands in the JSON results next to the timings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UserSerializationBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    private int size;
+
+    private ObjectWriter listWriter;
+    private ObjectWriter smileListWriter;
+    private ObjectWriter cborListWriter;
+    private List<UserDto> users;
+    private int jsonGzipBytes;
+    private int smileGzipBytes;
+    private int cborGzipBytes;
+    private int columnarGzipBytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        listWriter = listWriter(new JsonFactory());
+        smileListWriter = listWriter(new SmileFactory());
+        cborListWriter = listWriter(new CBORFactory());
+        users = BenchmarkUsers.dtos(0, size);
+
+        jsonGzipBytes = gzip(encodeJson()).length;
+        smileGzipBytes = gzip(encodeSmile()).length;
+        cborGzipBytes = gzip(encodeCbor()).length;
+        columnarGzipBytes = gzip(encodeColumnar()).length;
+    }
+
+    @Benchmark
+    public byte[] writeJsonList(WireSize wireSize) throws JsonProcessingException {
+        return wireSize.record(encodeJson(), jsonGzipBytes);
+    }
+
+    @Benchmark
+    public byte[] writeSmileList(WireSize wireSize) throws JsonProcessingException {
+        return wireSize.record(encodeSmile(), smileGzipBytes);
+    }
+
+    @Benchmark
+    public byte[] writeCborList(WireSize wireSize) throws JsonProcessingException {
+        return wireSize.record(encodeCbor(), cborGzipBytes);
+    }
+
+    @Benchmark
+    public byte[] writeColumnarList(WireSize wireSize) throws IOException {
+        return wireSize.record(encodeColumnar(), columnarGzipBytes);
+    }
+
+    @Benchmark
+    public byte[] writeGzippedJsonList(WireSize wireSize) throws IOException {
+        byte[] json = encodeJson();
+        byte[] gzipped = gzip(json);
+        wireSize.record(json, gzipped.length);
+        return gzipped;
+    }
+
+    /**
+     * Size of the last payload written. Fields are assigned rather than accumulated, so each iteration
+     * reports the payload size instead of a total over invocations.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class WireSize {
+
+        public long rawBytes;
+        public long gzipBytes;
+
+        byte[] record(byte[] encoded, int gzipLength) {
+            rawBytes = encoded.length;
+            gzipBytes = gzipLength;
+            return encoded;
+        }
+    }
+
+    private byte[] encodeJson() throws JsonProcessingException {
+        return listWriter.writeValueAsBytes(users);
+    }
+
+    private byte[] encodeSmile() throws JsonProcessingException {
+        return smileListWriter.writeValueAsBytes(users);
+    }
+
+    private byte[] encodeCbor() throws JsonProcessingException {
+        return cborListWriter.writeValueAsBytes(users);
+    }
+
+    private byte[] encodeColumnar() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(size * 64);
+        UserColumnarCodec.write(users, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    private ObjectWriter listWriter(JsonFactory factory) {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+                .factory(factory)
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        return objectMapper.writerFor(objectMapper.getTypeFactory()
+                .constructCollectionType(List.class, UserDto.class));
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(outputStream)) {
+            gzip.write(bytes);
+        }
+        return outputStream.toByteArray();
+    }
+}
@@ -0,0 +1,65 @@
+package com.clearsolutions.usersapi.benchmark;
+
+import com.clearsolutions.usersapi.dto.UserDto;
+import com.clearsolutions.usersapi.dto.validation.OnCreate;
+import com.clearsolutions.usersapi.dto.validation.OnParticalUpdate;
+import com.clearsolutions.usersapi.service.AgeRequirement;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UserValidationBenchmark {
+
+    private final AgeRequirement ageRequirement = new AgeRequirement(18);
+
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+    private UserDto userDto;
+    private UserDto partialUserDto;
+    private LocalDate birthDate;
+
+    @Setup
+    public void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        userDto = BenchmarkUsers.dto(1);
+        partialUserDto = new UserDto().setEmail("patched@example.com").setBirthDate(LocalDate.of(1990, 1, 1));
+        birthDate = userDto.getBirthDate();
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public boolean ageRequirement() {
+        return ageRequirement.isSatisfiedBy(birthDate);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<UserDto>> validateOnCreate() {
+        return validator.validate(userDto, OnCreate.class);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<UserDto>> validateOnParticalUpdate() {
+        return validator.validate(partialUserDto, OnParticalUpdate.class);
+    }
+}
@@ -0,0 +1,68 @@
+package com.clearsolutions.usersapi.loadtest;
+
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.random.RandomGenerator;
+
+/**
+ * Birth dates between two bounds, either uniform or normal around a mean. Normal samples outside the
+ * bounds are redrawn, so range queries see a realistic skew: dense around the mean, sparse at the edges.
+ */
+public final class BirthDateDistribution {
+
+    public enum Shape {
+        UNIFORM,
+        NORMAL
+    }
+
+    private static final double DAYS_PER_YEAR = 365.25;
+
+    private final Shape shape;
+
+    private final long fromEpochDay;
+
+    private final long toEpochDay;
+
+    private final double meanEpochDay;
+
+    private final double stddevDays;
+
+    public BirthDateDistribution(Shape shape, LocalDate from, LocalDate to, LocalDate mean, double stddevYears) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Birth date range is empty: " + from + ".." + to);
+        }
+        this.shape = shape;
+        this.fromEpochDay = from.toEpochDay();
+        this.toEpochDay = to.toEpochDay();
+        this.meanEpochDay = mean.toEpochDay();
+        this.stddevDays = stddevYears * DAYS_PER_YEAR;
+    }
+
+    public LocalDate sample(RandomGenerator random) {
+        if (shape == Shape.UNIFORM) {
+            return LocalDate.ofEpochDay(random.nextLong(fromEpochDay, toEpochDay + 1));
+        }
+        while (true) {
+            long epochDay = Math.round(random.nextGaussian(meanEpochDay, stddevDays));
+            if (epochDay >= fromEpochDay && epochDay <= toEpochDay) {
+                return LocalDate.ofEpochDay(epochDay);
+            }
+        }
+    }
+
+    public LocalDate getFrom() {
+        return LocalDate.ofEpochDay(fromEpochDay);
+    }
+
+    public LocalDate getTo() {
+        return LocalDate.ofEpochDay(toEpochDay);
+    }
+
+    @Override
+    public String toString() {
+        return shape == Shape.UNIFORM
+                ? String.format(Locale.ROOT, "uniform %s..%s", getFrom(), getTo())
+                : String.format(Locale.ROOT, "normal %s..%s, mean %s, stddev %.1f years",
+                getFrom(), getTo(), LocalDate.ofEpochDay((long) meanEpochDay), stddevDays / DAYS_PER_YEAR);
+    }
+}
@@ -0,0 +1,95 @@
+package com.clearsolutions.usersapi.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and outcomes of one kind of request. Latencies are recorded in microseconds from the time the
+ * request was scheduled, not sent, so a stalled server shows up in the percentiles instead of silently
+ * lowering the offered rate.
+ */
+final class EndpointStats {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    private final String name;
+
+    private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+
+    private final Histogram total = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+
+    private final AtomicLongArray statusClasses = new AtomicLongArray(6);
+
+    private final LongAdder throttled = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private Histogram interval;
+
+    EndpointStats(String name) {
+        this.name = name;
+    }
+
+    void record(long latencyNanos, int status) {
+        recorder.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), HIGHEST_TRACKABLE_MICROS));
+        if (status == TOO_MANY_REQUESTS) {
+            throttled.increment();
+        } else {
+            statusClasses.incrementAndGet(Math.min(status / 100, 5));
+        }
+    }
+
+    void recordFailure(long latencyNanos) {
+        recorder.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), HIGHEST_TRACKABLE_MICROS));
+        failures.increment();
+    }
+
+    void recordDropped() {
+        dropped.increment();
+    }
+
+    /**
+     * Moves what was recorded since the last call into the total and returns it; only called from one thread.
+     */
+    Histogram nextInterval() {
+        interval = recorder.getIntervalHistogram(interval);
+        interval.setTag(name);
+        total.add(interval);
+        return interval;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    Histogram getTotal() {
+        return total;
+    }
+
+    /**
+     * Responses in the given status class; 429s are counted apart, see {@link #getThrottled()}.
+     */
+    long getStatusCount(int statusClass) {
+        return statusClasses.get(statusClass);
+    }
+
+    long getThrottled() {
+        return throttled.sum();
+    }
+
+    long getFailures() {
+        return failures.sum();
+    }
+
+    long getDropped() {
+        return dropped.sum();
+    }
+}
@@ -0,0 +1,280 @@
+package com.clearsolutions.usersapi.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.HdrHistogram.HistogramLogWriter;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load against the users API: requests are issued at a fixed rate regardless of how fast
+ * responses come back, with the operation for each slot drawn from a weighted mix. Deletes only target
+ * users created during the run so the generated data set keeps its size and shape.
+ */
+final class LoadDriver {
+
+    enum Operation {
+        CREATE,
+        PUT,
+        PATCH,
+        DELETE,
+        RANGE
+    }
+
+    private static final String USERS_PATH = "/api/v1/users";
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final URI target;
+
+    private final UserDataGenerator users;
+
+    private final long baseUsers;
+
+    private final Map<Operation, Integer> mix;
+
+    private final int totalWeight;
+
+    private final int rangeDays;
+
+    private final int rangeLimit;
+
+    private final int clients;
+
+    private final Semaphore inFlight;
+
+    private final int maxInFlight;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<Operation, EndpointStats> stats = new EnumMap<>(Operation.class);
+
+    private final Queue<Long> createdIds = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong createSequence = new AtomicLong();
+
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+    private volatile boolean measuring;
+
+    /**
+     * Requests scheduled before this instant are warm-up traffic; none of their outcomes are recorded,
+     * including those that complete after the measured part has started.
+     */
+    private volatile long measureFrom = Long.MAX_VALUE;
+
+    LoadDriver(URI target, UserDataGenerator users, long baseUsers, Map<Operation, Integer> mix,
+               int rangeDays, int rangeLimit, int clients, int maxInFlight) {
+        this.target = target;
+        this.users = users;
+        this.baseUsers = baseUsers;
+        this.mix = new EnumMap<>(mix);
+        this.totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        this.rangeDays = rangeDays;
+        this.rangeLimit = rangeLimit;
+        this.clients = clients;
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        if (totalWeight <= 0) {
+            throw new IllegalArgumentException("Request mix must have a positive total weight");
+        }
+        if (baseUsers <= 0 && (mix.getOrDefault(Operation.PUT, 0) > 0 || mix.getOrDefault(Operation.PATCH, 0) > 0)) {
+            throw new IllegalArgumentException("PUT and PATCH need existing users; generate some first");
+        }
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new EndpointStats(operation.name().toLowerCase()));
+        }
+    }
+
+    /**
+     * Offers {@code rate} requests per second for the warm-up and then the measured duration, writing
+     * one-second interval histograms of the measured part to {@code intervalLog}.
+     */
+    Map<Operation, EndpointStats> run(double rate, Duration warmup, Duration duration, HistogramLogWriter intervalLog)
+            throws InterruptedException {
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        long startedAt = System.nanoTime();
+        measureFrom = startedAt + warmup.toNanos();
+        long stopAt = measureFrom + duration.toNanos();
+        SplittableRandom random = new SplittableRandom(42);
+
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+        intervalLog.setBaseTime(System.currentTimeMillis() + warmup.toMillis());
+        intervalLog.outputLogFormatVersion();
+        intervalLog.outputStartTime(intervalLog.getBaseTime());
+        intervalLog.outputLegend();
+        try {
+            for (long slot = 0; ; slot++) {
+                long scheduledAt = startedAt + slot * intervalNanos;
+                if (scheduledAt >= stopAt) {
+                    break;
+                }
+                if (!measuring && scheduledAt >= measureFrom) {
+                    measuring = true;
+                    reporter.scheduleAtFixedRate(() -> writeIntervals(intervalLog), 1, 1, TimeUnit.SECONDS);
+                }
+                long wait = scheduledAt - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                issue(pick(random), random.split(), scheduledAt);
+            }
+            inFlight.tryAcquire(maxInFlight, REQUEST_TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+        } finally {
+            reporter.shutdown();
+            reporter.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        writeIntervals(intervalLog);
+        return stats;
+    }
+
+    private synchronized void writeIntervals(HistogramLogWriter intervalLog) {
+        for (EndpointStats endpointStats : stats.values()) {
+            intervalLog.outputIntervalHistogram(endpointStats.nextInterval());
+        }
+    }
+
+    private Operation pick(SplittableRandom random) {
+        int ticket = random.nextInt(totalWeight);
+        for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+            ticket -= entry.getValue();
+            if (ticket < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Unreachable");
+    }
+
+    private void issue(Operation operation, SplittableRandom random, long scheduledAt) {
+        EndpointStats endpointStats = stats.get(operation);
+        boolean measured = scheduledAt >= measureFrom;
+        HttpRequest request = request(operation, random);
+        if (request == null || !inFlight.tryAcquire()) {
+            if (measured) {
+                endpointStats.recordDropped();
+            }
+            return;
+        }
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, error) -> {
+                    long latency = System.nanoTime() - scheduledAt;
+                    inFlight.release();
+                    if (error != null) {
+                        if (measured) {
+                            endpointStats.recordFailure(latency);
+                        }
+                        return;
+                    }
+                    if (measured) {
+                        endpointStats.record(latency, response.statusCode());
+                    }
+                    if (operation == Operation.CREATE && response.statusCode() / 100 == 2) {
+                        rememberCreated(response.body());
+                    }
+                });
+    }
+
+    private HttpRequest request(Operation operation, SplittableRandom random) {
+        return switch (operation) {
+            case CREATE -> json(USERS_PATH, "POST", newUser(random), random);
+            case PUT -> {
+                long id = random.nextLong(1, baseUsers + 1);
+                yield json(USERS_PATH + "/" + id, "PUT", existingUser(id, random), random);
+            }
+            case PATCH -> {
+                long id = random.nextLong(1, baseUsers + 1);
+                yield json(USERS_PATH + "/" + id, "PATCH", objectMapper.createObjectNode()
+                        .put("phoneNumber", "+380" + (500_000_000 + random.nextInt(100_000_000))), random);
+            }
+            case DELETE -> {
+                Long id = createdIds.poll();
+                yield id == null ? null : builder(USERS_PATH + "/" + id, random).DELETE().build();
+            }
+            case RANGE -> {
+                LocalDate from = users.getBirthDates().sample(random);
+                String query = "?from=" + from + "&to=" + from.plusDays(rangeDays) + "&limit=" + rangeLimit;
+                yield builder(USERS_PATH + query, random).GET().build();
+            }
+        };
+    }
+
+    private ObjectNode newUser(SplittableRandom random) {
+        long sequence = createSequence.incrementAndGet();
+        return objectMapper.createObjectNode()
+                .put("email", "created." + runId + "." + sequence + "@loadtest.example")
+                .put("firstName", "Created")
+                .put("surname", "User" + sequence)
+                .put("birthDate", users.getBirthDates().sample(random).toString())
+                .put("address", sequence + " Load Street")
+                .put("phoneNumber", "+380" + (500_000_000 + random.nextInt(100_000_000)));
+    }
+
+    private ObjectNode existingUser(long id, SplittableRandom random) {
+        return objectMapper.createObjectNode()
+                .put("id", id)
+                .put("email", users.email(id))
+                .put("firstName", "Updated")
+                .put("surname", "User" + id)
+                .put("birthDate", users.getBirthDates().sample(random).toString())
+                .put("address", id + " Updated Street")
+                .put("phoneNumber", "+380" + (500_000_000 + random.nextInt(100_000_000)));
+    }
+
+    private void rememberCreated(String body) {
+        try {
+            JsonNode id = objectMapper.readTree(body).path("id");
+            if (id.canConvertToLong()) {
+                createdIds.add(id.asLong());
+            }
+        } catch (IOException e) {
+            // The request itself succeeded; this user just won't be deleted later.
+        }
+    }
+
+    private HttpRequest json(String path, String method, ObjectNode body, SplittableRandom random) {
+        try {
+            return builder(path, random)
+                    .header("Content-Type", "application/json")
+                    .method(method, HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                    .build();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Spreads requests over {@code clients} client ids, so per-client rate limits see a crowd rather than
+     * one caller. The application only honours the header from a trusted proxy address; LoadTest trusts
+     * loopback for the in-JVM application, and a {@code --target} has to list this machine in its own
+     * {@code trusted-proxies}, otherwise all traffic shares the one per-address bucket.
+     */
+    private HttpRequest.Builder builder(String path, SplittableRandom random) {
+        return HttpRequest.newBuilder(target.resolve(path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("X-Client-Id", "loadtest-" + runId + "-" + random.nextInt(clients));
+    }
+}
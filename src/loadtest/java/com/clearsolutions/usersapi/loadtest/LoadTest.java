@@ -0,0 +1,238 @@
+package com.clearsolutions.usersapi.loadtest;
+
+import com.clearsolutions.usersapi.UsersApiApplication;
+import com.clearsolutions.usersapi.entity.UserIdGenerator;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.flywaydb.core.Flyway;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load-test entry point. Without {@code --db-url} it starts an embedded Postgres, and without
+ * {@code --target} it starts the application in this JVM against that database, so a run needs nothing
+ * but this machine. Options are {@code --name=value} pairs:
+ * <pre>
+ * users=1000000          users to generate; 0 keeps the existing data
+ * seed=42                makes generated data reproducible
+ * birth-dates=normal     uniform or normal
+ * birth-from=1940-01-01  birth-to defaults to the latest adult birth date
+ * birth-mean=1985-07-01  birth-stddev-years=12, both for normal only
+ * db-url, db-username, db-password
+ * truncate=false        must be true to generate users into a db-url database, as that empties it
+ * target=http://host:port
+ * threads=platform      platform or virtual request threads for the in-JVM application
+ * rate=200               requests per second offered
+ * warmup=10s, duration=60s
+ * mix=range:40,create:20,put:15,patch:20,delete:5
+ * range-days=365, range-limit=100, clients=100, max-in-flight=2000
+ * output=build/loadtest
+ * </pre>
+ * Results are written as an HdrHistogram interval log plus one percentile distribution per endpoint.
+ * To compare thread modes, run twice at the same rate against the same data, once per {@code threads} value.
+ */
+public final class LoadTest {
+
+    private static final int REQUIRED_AGE = 18;
+
+    private static final String LOOPBACK_ADDRESSES = "127.0.0.1,::1,0:0:0:0:0:0:0:1";
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+
+        EmbeddedPostgres postgres = null;
+        ConfigurableApplicationContext application = null;
+        try {
+            String dbUrl = options.get("db-url");
+            String dbUsername = options.getOrDefault("db-username", "postgres");
+            String dbPassword = options.getOrDefault("db-password", "postgres");
+            long users = Long.parseLong(options.getOrDefault("users", "1000000"));
+            if (dbUrl != null && users > 0 && !Boolean.parseBoolean(options.getOrDefault("truncate", "false"))) {
+                throw new IllegalArgumentException("Generating users empties the users and user_changes tables of "
+                        + dbUrl + "; pass --truncate=true to allow it, or --users=0 to keep the existing data");
+            }
+            if (dbUrl == null) {
+                postgres = EmbeddedPostgres.builder().start();
+                dbUrl = postgres.getJdbcUrl("postgres", "postgres");
+                System.out.println("Started embedded Postgres at " + dbUrl);
+            }
+
+            Flyway.configure()
+                    .dataSource(dbUrl, dbUsername, dbPassword)
+                    .locations("classpath:db/migration")
+                    .placeholders(Map.of("users_id_allocation_size",
+                            String.valueOf(UserIdGenerator.DEFAULT_ALLOCATION_SIZE)))
+                    .load()
+                    .migrate();
+
+            UserDataGenerator generator = new UserDataGenerator(
+                    Long.parseLong(options.getOrDefault("seed", "42")), birthDates(options));
+            long baseUsers;
+            try (Connection connection = DriverManager.getConnection(dbUrl, dbUsername, dbPassword)) {
+                if (users > 0) {
+                    long started = System.nanoTime();
+                    generator.generate(connection, users);
+                    System.out.printf(Locale.ROOT, "Generated %,d users (%s) in %d s%n", users,
+                            generator.getBirthDates(), TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started));
+                }
+                baseUsers = maxUserId(connection);
+            }
+
+            String target = options.get("target");
+            String threads = options.get("threads");
+            if (target != null && threads != null) {
+                throw new IllegalArgumentException("--threads applies only to the in-JVM application, not --target");
+            }
+            if (target == null) {
+                boolean virtualThreads = threads(threads != null ? threads : "platform");
+                // Command-line arguments, as they must win over the placeholders in application.yaml.
+                application = new SpringApplicationBuilder(UsersApiApplication.class).run(
+                        "--spring.datasource.url=" + dbUrl,
+                        "--spring.datasource.username=" + dbUsername,
+                        "--spring.datasource.password=" + dbPassword,
+                        "--spring.threads.virtual.enabled=" + virtualThreads,
+                        // The driver spreads requests over X-Client-Id values, which only a trusted proxy may set.
+                        "--users.admission-control.client.trusted-proxies=" + LOOPBACK_ADDRESSES,
+                        "--server.port=0",
+                        "--logging.level.root=warn");
+                target = "http://localhost:" + application.getEnvironment().getProperty("local.server.port");
+                System.out.println("Started the application on " + (virtualThreads ? "virtual" : "platform")
+                        + " threads");
+            }
+
+            LoadDriver driver = new LoadDriver(URI.create(target), generator, baseUsers, mix(options),
+                    Integer.parseInt(options.getOrDefault("range-days", "365")),
+                    Integer.parseInt(options.getOrDefault("range-limit", "100")),
+                    Integer.parseInt(options.getOrDefault("clients", "100")),
+                    Integer.parseInt(options.getOrDefault("max-in-flight", "2000")));
+
+            double rate = Double.parseDouble(options.getOrDefault("rate", "200"));
+            Duration warmup = DurationStyle.detectAndParse(options.getOrDefault("warmup", "10s"));
+            Duration duration = DurationStyle.detectAndParse(options.getOrDefault("duration", "60s"));
+            File output = new File(options.getOrDefault("output", "build/loadtest"),
+                    LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")));
+            if (!output.mkdirs()) {
+                throw new IOException("Cannot create " + output);
+            }
+
+            System.out.printf(Locale.ROOT, "Offering %.0f req/s to %s for %s after a %s warm-up%n",
+                    rate, target, duration, warmup);
+            Map<LoadDriver.Operation, EndpointStats> stats;
+            try (PrintStream log = new PrintStream(new File(output, "latency.hlog"))) {
+                stats = driver.run(rate, warmup, duration, new HistogramLogWriter(log));
+            }
+            report(stats, duration, output);
+        } finally {
+            if (application != null) {
+                application.close();
+            }
+            if (postgres != null) {
+                postgres.close();
+            }
+        }
+    }
+
+    private static void report(Map<LoadDriver.Operation, EndpointStats> stats, Duration duration, File output)
+            throws IOException {
+        double seconds = duration.toMillis() / 1000.0;
+        System.out.printf(Locale.ROOT, "%-8s %10s %9s %9s %9s %9s %9s %9s %7s %7s %7s %7s %7s%n", "endpoint",
+                "requests", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "429", "4xx", "5xx",
+                "failed", "dropped");
+        for (EndpointStats endpointStats : stats.values()) {
+            Histogram histogram = endpointStats.getTotal();
+            if (histogram.getTotalCount() == 0 && endpointStats.getDropped() == 0) {
+                continue;
+            }
+            System.out.printf(Locale.ROOT, "%-8s %10d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f %7d %7d %7d %7d %7d%n",
+                    endpointStats.getName(), histogram.getTotalCount(), histogram.getTotalCount() / seconds,
+                    millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                    millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                    millis(histogram.getMaxValue()), endpointStats.getThrottled(), endpointStats.getStatusCount(4),
+                    endpointStats.getStatusCount(5), endpointStats.getFailures(), endpointStats.getDropped());
+            try (PrintStream out = new PrintStream(new File(output, endpointStats.getName() + ".hgrm"))) {
+                histogram.outputPercentileDistribution(out, 1000.0);
+            }
+        }
+        System.out.println("Histograms (microseconds, .hgrm in milliseconds) written to " + output);
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static long maxUserId(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("select coalesce(max(id), 0) from users")) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    private static boolean threads(String threads) {
+        return switch (threads.toLowerCase(Locale.ROOT)) {
+            case "platform" -> false;
+            case "virtual" -> true;
+            default -> throw new IllegalArgumentException("Invalid threads '" + threads + "', expected platform or virtual");
+        };
+    }
+
+    private static BirthDateDistribution birthDates(Map<String, String> options) {
+        LocalDate latestAdult = LocalDate.now().minusYears(REQUIRED_AGE).minusDays(1);
+        String shape = options.getOrDefault("birth-dates", "normal").toUpperCase(Locale.ROOT);
+        return new BirthDateDistribution(
+                BirthDateDistribution.Shape.valueOf(shape),
+                LocalDate.parse(options.getOrDefault("birth-from", "1940-01-01")),
+                LocalDate.parse(options.getOrDefault("birth-to", latestAdult.toString())),
+                LocalDate.parse(options.getOrDefault("birth-mean", "1985-07-01")),
+                Double.parseDouble(options.getOrDefault("birth-stddev-years", "12")));
+    }
+
+    private static Map<LoadDriver.Operation, Integer> mix(Map<String, String> options) {
+        Map<LoadDriver.Operation, Integer> mix = new EnumMap<>(LoadDriver.Operation.class);
+        for (String entry : options.getOrDefault("mix", "range:40,create:20,put:15,patch:20,delete:5").split(",")) {
+            String[] parts = entry.split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid mix entry '" + entry + "', expected operation:weight");
+            }
+            mix.put(LoadDriver.Operation.valueOf(parts[0].trim().toUpperCase(Locale.ROOT)),
+                    Integer.parseInt(parts[1].trim()));
+        }
+        return mix;
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Invalid option '" + arg + "', expected --name=value");
+            }
+            int separator = arg.indexOf('=');
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+}
@@ -0,0 +1,118 @@
+package com.clearsolutions.usersapi.loadtest;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Writes synthetic users straight into the users table with COPY. Every row is derived from the seed and
+ * its id alone, so a run is reproducible and the load driver can rebuild a user's email for a PUT without
+ * reading it back.
+ */
+public final class UserDataGenerator {
+
+    private static final String[] FIRST_NAMES = {
+            "Olena", "Andrii", "Maria", "Taras", "Iryna", "Dmytro", "Sofia", "Oleksandr", "Anna", "Mykola",
+            "Kateryna", "Serhii", "Yulia", "Bohdan", "Natalia", "Ivan", "Oksana", "Roman", "Viktoria", "Pavlo",
+            "Emma", "James", "Olivia", "Lucas", "Mia", "Noah", "Ava", "Liam", "Zoe", "Adam"};
+
+    private static final String[] SURNAMES = {
+            "Shevchenko", "Kovalenko", "Bondarenko", "Tkachenko", "Kravchenko", "Oliynyk", "Shevchuk", "Polishchuk",
+            "Boyko", "Melnyk", "Lysenko", "Marchenko", "Savchenko", "Rudenko", "Moroz", "Pavlenko", "Smith",
+            "Johnson", "Brown", "Garcia", "Miller", "Davis", "Wilson", "Anderson", "Taylor", "Thomas", "Moore"};
+
+    private static final String[] STREETS = {
+            "Khreshchatyk", "Shevchenka", "Franka", "Lesi Ukrainky", "Sadova", "Oak", "Maple", "Station", "Park"};
+
+    private static final String EMAIL_DOMAIN = "@loadtest.example";
+
+    private static final int ROWS_PER_CHUNK = 10_000;
+
+    private static final long ID_MIX = 0x9E3779B97F4A7C15L;
+
+    private final long seed;
+
+    private final BirthDateDistribution birthDates;
+
+    public UserDataGenerator(long seed, BirthDateDistribution birthDates) {
+        this.seed = seed;
+        this.birthDates = birthDates;
+    }
+
+    /**
+     * Replaces the contents of the users and user_changes tables with {@code count} users with ids 1..count
+     * and moves the id sequence past them. Callers decide whether the database may be emptied.
+     */
+    public void generate(Connection connection, long count) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("truncate table users, user_changes");
+        }
+
+        CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(
+                "copy users (id, email, first_name, surname, birth_date, address, phone_number, version) from stdin");
+        try {
+            StringBuilder chunk = new StringBuilder(ROWS_PER_CHUNK * 128);
+            for (long id = 1; id <= count; id++) {
+                appendRow(chunk, id);
+                if (id % ROWS_PER_CHUNK == 0 || id == count) {
+                    byte[] bytes = chunk.toString().getBytes(StandardCharsets.UTF_8);
+                    copyIn.writeToCopy(bytes, 0, bytes.length);
+                    chunk.setLength(0);
+                }
+            }
+            copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            // The pooled id generator treats nextval as the upper end of its block.
+            statement.execute("select setval('users_id_seq', greatest(" + count + ", 1))");
+            statement.execute("analyze users");
+        }
+    }
+
+    public String email(long id) {
+        SplittableRandom random = random(id);
+        String firstName = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+        String surname = SURNAMES[random.nextInt(SURNAMES.length)];
+        return email(firstName, surname, id);
+    }
+
+    public BirthDateDistribution getBirthDates() {
+        return birthDates;
+    }
+
+    private void appendRow(StringBuilder chunk, long id) {
+        SplittableRandom random = random(id);
+        String firstName = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+        String surname = SURNAMES[random.nextInt(SURNAMES.length)];
+        LocalDate birthDate = birthDates.sample(random);
+        chunk.append(id).append('\t')
+                .append(email(firstName, surname, id)).append('\t')
+                .append(firstName).append('\t')
+                .append(surname).append('\t')
+                .append(birthDate).append('\t')
+                .append(1 + random.nextInt(200)).append(' ').append(STREETS[random.nextInt(STREETS.length)])
+                .append(" Street").append('\t')
+                .append("+380").append(500_000_000 + random.nextInt(100_000_000)).append('\t')
+                .append(0).append('\n');
+    }
+
+    private SplittableRandom random(long id) {
+        return new SplittableRandom(seed ^ (id * ID_MIX));
+    }
+
+    private static String email(String firstName, String surname, long id) {
+        return (firstName + "." + surname + "." + id).toLowerCase(Locale.ROOT) + EMAIL_DOMAIN;
+    }
+}
@@ -2,8 +2,12 @@ package com.clearsolutions.usersapi;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
+@EnableCaching
 @SpringBootApplication
+@ImportRuntimeHints(UsersApiRuntimeHints.class)
 public class UsersApiApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,37 @@
+package com.clearsolutions.usersapi;
+
+import com.clearsolutions.usersapi.dto.UserChangeDto;
+import com.clearsolutions.usersapi.dto.UserDto;
+import com.clearsolutions.usersapi.entity.UserIdGenerator;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+
+/**
+ * Reflection and resource hints for a native image that Spring's AOT processing cannot infer: types
+ * Hibernate instantiates by name, payloads serialized outside of controller return values and
+ * resources read from locations chosen at runtime.
+ */
+public class UsersApiRuntimeHints implements RuntimeHintsRegistrar {
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        // Written by UserChangeOutbox and the change feed through the ObjectMapper directly.
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(),
+                UserDto.class, UserChangeDto.class);
+        // Instantiated reflectively for @UserIdSequence.
+        hints.reflection().registerType(UserIdGenerator.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+        // Built through JPQL constructor expressions (select new ...UserDto(...)).
+        hints.reflection().registerType(UserDto.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+        // Second-level cache provider, loaded only when the cache is enabled.
+        hints.reflection().registerType(
+                TypeReference.of("com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider"),
+                MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+
+        hints.resources().registerPattern("hibernate-cache.conf");
+        hints.resources().registerPattern("db/migration/*.sql");
+        hints.resources().registerPattern("db/optional/*/*.sql");
+    }
+}
@@ -0,0 +1,115 @@
+package com.clearsolutions.usersapi.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit that adapts to the gradient between recent and long-term latency. Both are exponential
+ * moving averages, so a mix of fast and slow endpoints settles into a stable average instead of looking like
+ * overload next to the fastest sample seen. The limit shrinks once the recent average exceeds the long-term
+ * one by more than {@code latencyTolerance}, grows by a small queue allowance otherwise, and is cut by
+ * {@code backoffRatio} on a failed request. Samples taken while less than half the limit is in use are not
+ * used to resize it.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private static final double SHORT_RTT_WEIGHT = 0.2;
+
+    private static final double LONG_RTT_WEIGHT = 0.01;
+
+    private static final double MIN_GRADIENT = 0.5;
+
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final double latencyTolerance;
+
+    private final double backoffRatio;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile int limit;
+
+    private double estimatedLimit;
+
+    private double shortRttNanos = Double.NaN;
+
+    private double longRttNanos = Double.NaN;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit,
+                                    double latencyTolerance, double backoffRatio) {
+        if (minLimit < 1 || minLimit > maxLimit) {
+            throw new IllegalArgumentException("Invalid concurrency limit bounds: " + minLimit + ".." + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyTolerance = latencyTolerance;
+        this.backoffRatio = backoffRatio;
+        this.estimatedLimit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.limit = (int) estimatedLimit;
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Releases a permit without feeding the limit, for requests whose duration says nothing about load,
+     * such as long-running streams.
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    public void release(long latencyNanos, boolean failed) {
+        int inFlightBeforeRelease = inFlight.getAndDecrement();
+        onSample(latencyNanos, failed, inFlightBeforeRelease);
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void onSample(long latencyNanos, boolean failed, int inFlightAtSample) {
+        if (failed) {
+            estimatedLimit = Math.max(minLimit, estimatedLimit * backoffRatio);
+            limit = (int) estimatedLimit;
+            return;
+        }
+
+        if (Double.isNaN(shortRttNanos)) {
+            shortRttNanos = latencyNanos;
+            longRttNanos = latencyNanos;
+        } else {
+            shortRttNanos += (latencyNanos - shortRttNanos) * SHORT_RTT_WEIGHT;
+            longRttNanos += (latencyNanos - longRttNanos) * LONG_RTT_WEIGHT;
+            if (longRttNanos > shortRttNanos * 2) {
+                // Latency is back to normal after an overload; let the long-term average catch up faster.
+                longRttNanos *= 0.95;
+            }
+        }
+
+        if (inFlightAtSample * 2 < estimatedLimit) {
+            return;
+        }
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, latencyTolerance * longRttNanos / shortRttNanos));
+        double target = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit,
+                estimatedLimit * (1 - SMOOTHING) + target * SMOOTHING));
+        limit = (int) estimatedLimit;
+    }
+}
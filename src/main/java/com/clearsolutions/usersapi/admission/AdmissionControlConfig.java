@@ -0,0 +1,45 @@
+package com.clearsolutions.usersapi.admission;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Puts admission control in front of the users endpoints. The change feed is left out: its connections
+ * are long-lived by design and already bounded by the feed's own scheduler.
+ */
+@Configuration
+@EnableConfigurationProperties(AdmissionControlProperties.class)
+@ConditionalOnProperty(name = "users.admission-control.enabled", havingValue = "true")
+public class AdmissionControlConfig implements WebMvcConfigurer {
+
+    private final AdmissionControlInterceptor interceptor;
+
+    public AdmissionControlConfig(AdmissionControlProperties properties, MeterRegistry meterRegistry) {
+        Map<EndpointClass, AdaptiveConcurrencyLimit> limits = new EnumMap<>(EndpointClass.class);
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            AdmissionControlProperties.Limit limit = properties.limit(endpointClass);
+            limits.put(endpointClass, new AdaptiveConcurrencyLimit(limit.getInitial(), limit.getMin(),
+                    limit.getMax(), limit.getLatencyTolerance(), limit.getBackoffRatio()));
+        }
+        AdmissionControlProperties.Client client = properties.getClient();
+        ClientRateLimiter clientRateLimiter = new ClientRateLimiter(client.getRequestsPerSecond(), client.getBurst(),
+                client.getMaximumClients(), client.getIdleTimeout(), Ticker.systemTicker());
+        this.interceptor = new AdmissionControlInterceptor(limits, clientRateLimiter, client.getHeader(),
+                client.getTrustedProxies(), meterRegistry);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(interceptor)
+                .addPathPatterns("/api/v1/users", "/api/v1/users/**")
+                .excludePathPatterns("/api/v1/users/changes");
+    }
+}
@@ -0,0 +1,176 @@
+package com.clearsolutions.usersapi.admission;
+
+import com.clearsolutions.usersapi.exceptions.ServiceUnavailableException;
+import com.clearsolutions.usersapi.exceptions.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.util.StringUtils;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.security.Principal;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rejects requests before they reach the controller once the caller is over its rate or the endpoint
+ * class is at its concurrency limit. Rejections surface as {@link TooManyRequestsException} and
+ * {@link ServiceUnavailableException} so they are rendered by the controller advice like any other error.
+ * <p>
+ * A permit is held until the request completes, including its async dispatch. Requests that went async
+ * release their permit without a latency sample, since a stream's duration depends on its size rather
+ * than on load.
+ */
+public class AdmissionControlInterceptor implements AsyncHandlerInterceptor {
+
+    public static final String OVERLOADED_MESSAGE = "Server is busy, please retry later.";
+
+    public static final String RATE_LIMITED_MESSAGE = "Too many requests, please slow down.";
+
+    private static final String PERMIT_ATTRIBUTE = AdmissionControlInterceptor.class.getName() + ".permit";
+
+    private final Map<EndpointClass, AdaptiveConcurrencyLimit> limits = new EnumMap<>(EndpointClass.class);
+
+    private final Map<EndpointClass, Counter> overloaded = new EnumMap<>(EndpointClass.class);
+
+    private final ClientRateLimiter clientRateLimiter;
+
+    private final String clientHeader;
+
+    private final Set<String> trustedProxies;
+
+    private final Counter rateLimited;
+
+    public AdmissionControlInterceptor(Map<EndpointClass, AdaptiveConcurrencyLimit> limits,
+                                       ClientRateLimiter clientRateLimiter,
+                                       String clientHeader,
+                                       Set<String> trustedProxies,
+                                       MeterRegistry meterRegistry) {
+        this.clientRateLimiter = clientRateLimiter;
+        this.clientHeader = clientHeader;
+        this.trustedProxies = Set.copyOf(trustedProxies);
+        this.limits.putAll(limits);
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            AdaptiveConcurrencyLimit limit = limits.get(endpointClass);
+            String tag = endpointClass.name().toLowerCase();
+            Gauge.builder("users.admission.inflight", limit, AdaptiveConcurrencyLimit::getInFlight)
+                    .description("Requests currently admitted")
+                    .tag("class", tag)
+                    .register(meterRegistry);
+            Gauge.builder("users.admission.limit", limit, AdaptiveConcurrencyLimit::getLimit)
+                    .description("Current adaptive concurrency limit")
+                    .tag("class", tag)
+                    .register(meterRegistry);
+            overloaded.put(endpointClass, Counter.builder("users.admission.rejected")
+                    .description("Requests rejected by admission control")
+                    .tag("class", tag)
+                    .tag("reason", "concurrency")
+                    .register(meterRegistry));
+        }
+        this.rateLimited = Counter.builder("users.admission.rejected")
+                .description("Requests rejected by admission control")
+                .tag("class", "any")
+                .tag("reason", "rate")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() != DispatcherType.REQUEST || !(handler instanceof HandlerMethod handlerMethod)) {
+            return true;
+        }
+
+        long waitNanos = clientRateLimiter.tryAcquire(clientOf(request));
+        if (waitNanos > 0) {
+            rateLimited.increment();
+            throw new TooManyRequestsException(RATE_LIMITED_MESSAGE,
+                    Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1)));
+        }
+
+        EndpointClass endpointClass = classify(request, handlerMethod);
+        AdaptiveConcurrencyLimit limit = limits.get(endpointClass);
+        if (!limit.tryAcquire()) {
+            overloaded.get(endpointClass).increment();
+            throw new ServiceUnavailableException(OVERLOADED_MESSAGE);
+        }
+        request.setAttribute(PERMIT_ATTRIBUTE, new Permit(limit, System.nanoTime()));
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        if (request.getAttribute(PERMIT_ATTRIBUTE) instanceof Permit permit) {
+            permit.async = true;
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        if (!(request.getAttribute(PERMIT_ATTRIBUTE) instanceof Permit permit)) {
+            return;
+        }
+        if (permit.async && request.getDispatcherType() == DispatcherType.REQUEST) {
+            // The permit is released once the async dispatch completes.
+            return;
+        }
+        request.removeAttribute(PERMIT_ATTRIBUTE);
+        if (permit.async) {
+            permit.limit.release();
+        } else {
+            permit.limit.release(System.nanoTime() - permit.startedAt,
+                    ex != null || response.getStatus() >= HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Keys the rate limit on the authenticated principal, or else on the remote address. The client header
+     * is anyone's to set, so it is only taken from the proxies listed as trusted.
+     */
+    String clientOf(HttpServletRequest request) {
+        Principal principal = request.getUserPrincipal();
+        if (principal != null) {
+            return "principal:" + principal.getName();
+        }
+        String remoteAddress = request.getRemoteAddr();
+        if (trustedProxies.contains(remoteAddress)) {
+            String client = request.getHeader(clientHeader);
+            if (StringUtils.hasText(client)) {
+                return "client:" + client;
+            }
+        }
+        return "address:" + remoteAddress;
+    }
+
+    static EndpointClass classify(HttpServletRequest request, HandlerMethod handlerMethod) {
+        AdmittedAs admittedAs = handlerMethod.getMethodAnnotation(AdmittedAs.class);
+        if (admittedAs != null) {
+            return admittedAs.value();
+        }
+        return HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod())
+                ? EndpointClass.READ
+                : EndpointClass.WRITE;
+    }
+
+    private static final class Permit {
+
+        private final AdaptiveConcurrencyLimit limit;
+
+        private final long startedAt;
+
+        private volatile boolean async;
+
+        private Permit(AdaptiveConcurrencyLimit limit, long startedAt) {
+            this.limit = limit;
+            this.startedAt = startedAt;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.clearsolutions.usersapi.admission;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+@Data
+@ConfigurationProperties(prefix = "users.admission-control")
+public class AdmissionControlProperties {
+
+    private boolean enabled;
+
+    private Map<EndpointClass, Limit> limits = new EnumMap<>(EndpointClass.class);
+
+    private Client client = new Client();
+
+    public Limit limit(EndpointClass endpointClass) {
+        return limits.getOrDefault(endpointClass, new Limit());
+    }
+
+    @Data
+    public static class Limit {
+
+        private int initial = 20;
+
+        private int min = 2;
+
+        private int max = 200;
+
+        /**
+         * How much the recent average latency may exceed the long-term average before the limit is reduced.
+         */
+        private double latencyTolerance = 2.0;
+
+        private double backoffRatio = 0.9;
+    }
+
+    @Data
+    public static class Client {
+
+        /**
+         * Header identifying the caller. It is only honoured on requests from {@link #trustedProxies};
+         * other callers are keyed on their principal or remote address.
+         */
+        private String header = "X-Client-Id";
+
+        /**
+         * Remote addresses of the proxies allowed to set {@link #header}.
+         */
+        private Set<String> trustedProxies = new HashSet<>();
+
+        private double requestsPerSecond = 50;
+
+        private int burst = 100;
+
+        private long maximumClients = 100_000;
+
+        private Duration idleTimeout = Duration.ofMinutes(10);
+    }
+}
@@ -0,0 +1,19 @@
+package com.clearsolutions.usersapi.admission;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Overrides the endpoint class of a handler method. Without it, GET requests are {@link EndpointClass#READ}
+ * and everything else is {@link EndpointClass#WRITE}.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface AdmittedAs {
+
+    EndpointClass value();
+}
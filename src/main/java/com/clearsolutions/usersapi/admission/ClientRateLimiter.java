@@ -0,0 +1,69 @@
+package com.clearsolutions.usersapi.admission;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket per client. Buckets are created on first use and dropped once the client has been idle
+ * for a while, which also bounds the memory an address-spraying caller can consume.
+ */
+public class ClientRateLimiter {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final double tokensPerNano;
+
+    private final int burst;
+
+    private final Ticker ticker;
+
+    private final Cache<String, TokenBucket> buckets;
+
+    public ClientRateLimiter(double requestsPerSecond, int burst, long maximumClients, Duration idleTimeout,
+                             Ticker ticker) {
+        this.tokensPerNano = requestsPerSecond / NANOS_PER_SECOND;
+        this.burst = burst;
+        this.ticker = ticker;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maximumClients)
+                .expireAfterAccess(idleTimeout)
+                .ticker(ticker)
+                .build();
+    }
+
+    /**
+     * Takes one token from the client's bucket.
+     *
+     * @return 0 if the request may proceed, otherwise the nanoseconds until a token becomes available
+     */
+    public long tryAcquire(String client) {
+        return buckets.get(client, key -> new TokenBucket(burst, ticker.read()))
+                .tryAcquire(ticker.read());
+    }
+
+    private class TokenBucket {
+
+        private double tokens;
+
+        private long refilledAt;
+
+        TokenBucket(double tokens, long now) {
+            this.tokens = tokens;
+            this.refilledAt = now;
+        }
+
+        synchronized long tryAcquire(long now) {
+            tokens = Math.min(burst, tokens + (now - refilledAt) * tokensPerNano);
+            refilledAt = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / tokensPerNano);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.clearsolutions.usersapi.admission;
+
+/**
+ * Groups endpoints that compete for the same resources. Each class gets its own concurrency limit, so a
+ * burst of range scans cannot starve single-row reads and writes.
+ */
+public enum EndpointClass {
+    RANGE,
+    READ,
+    WRITE
+}
@@ -0,0 +1,164 @@
+package com.clearsolutions.usersapi.codec;
+
+import com.clearsolutions.usersapi.dto.UserDto;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Column-oriented binary layout for lists of users. After a magic number, a format version and the row
+ * count, each field is written as one column: ids and birth dates as zig-zag varint deltas from the
+ * previous row, versions as varints, and strings as a varint length followed by UTF-8 bytes. Every
+ * value is shifted by one so that zero can stand for null. Field names are never repeated, and the
+ * deltas of a list sorted by birth date are mostly single bytes.
+ */
+public final class UserColumnarCodec {
+
+    public static final String MEDIA_TYPE = "application/vnd.users.columnar";
+
+    private static final int MAGIC = 0x55434F4C;
+
+    private static final byte FORMAT_VERSION = 1;
+
+    private UserColumnarCodec() {
+    }
+
+    public static void write(List<UserDto> users, OutputStream outputStream) throws IOException {
+        DataOutputStream out = new DataOutputStream(outputStream);
+        out.writeInt(MAGIC);
+        out.writeByte(FORMAT_VERSION);
+        writeVarint(out, users.size());
+
+        writeDeltas(out, users, UserDto::getId);
+        writeDeltas(out, users, user -> user.getBirthDate() != null ? user.getBirthDate().toEpochDay() : null);
+        for (UserDto user : users) {
+            writeVarint(out, user.getVersion() != null ? user.getVersion() + 1 : 0);
+        }
+        writeStrings(out, users, UserDto::getEmail);
+        writeStrings(out, users, UserDto::getFirstName);
+        writeStrings(out, users, UserDto::getSurname);
+        writeStrings(out, users, UserDto::getAddress);
+        writeStrings(out, users, UserDto::getPhoneNumber);
+        out.flush();
+    }
+
+    public static List<UserDto> read(InputStream inputStream) throws IOException {
+        DataInputStream in = new DataInputStream(inputStream);
+        if (in.readInt() != MAGIC || in.readByte() != FORMAT_VERSION) {
+            throw new IOException("Not a columnar users payload");
+        }
+        int size = Math.toIntExact(readVarint(in));
+        List<UserDto> users = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            users.add(new UserDto());
+        }
+
+        Long[] ids = readDeltas(in, size);
+        Long[] epochDays = readDeltas(in, size);
+        for (int i = 0; i < size; i++) {
+            long version = readVarint(in);
+            users.get(i)
+                    .setId(ids[i])
+                    .setBirthDate(epochDays[i] != null ? LocalDate.ofEpochDay(epochDays[i]) : null)
+                    .setVersion(version != 0 ? version - 1 : null);
+        }
+        for (UserDto user : users) {
+            user.setEmail(readString(in));
+        }
+        for (UserDto user : users) {
+            user.setFirstName(readString(in));
+        }
+        for (UserDto user : users) {
+            user.setSurname(readString(in));
+        }
+        for (UserDto user : users) {
+            user.setAddress(readString(in));
+        }
+        for (UserDto user : users) {
+            user.setPhoneNumber(readString(in));
+        }
+        return users;
+    }
+
+    private static void writeDeltas(DataOutputStream out, List<UserDto> users, Function<UserDto, Long> column)
+            throws IOException {
+        long previous = 0;
+        for (UserDto user : users) {
+            Long value = column.apply(user);
+            if (value == null) {
+                writeVarint(out, 0);
+                continue;
+            }
+            long delta = value - previous;
+            writeVarint(out, ((delta << 1) ^ (delta >> 63)) + 1);
+            previous = value;
+        }
+    }
+
+    private static Long[] readDeltas(DataInputStream in, int size) throws IOException {
+        Long[] values = new Long[size];
+        long previous = 0;
+        for (int i = 0; i < size; i++) {
+            long encoded = readVarint(in);
+            if (encoded == 0) {
+                continue;
+            }
+            long zigZag = encoded - 1;
+            previous += (zigZag >>> 1) ^ -(zigZag & 1);
+            values[i] = previous;
+        }
+        return values;
+    }
+
+    private static void writeStrings(DataOutputStream out, List<UserDto> users, Function<UserDto, String> column)
+            throws IOException {
+        for (UserDto user : users) {
+            String value = column.apply(user);
+            if (value == null) {
+                writeVarint(out, 0);
+                continue;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(out, bytes.length + 1L);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        long length = readVarint(in);
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[Math.toIntExact(length - 1)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarint(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarint(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
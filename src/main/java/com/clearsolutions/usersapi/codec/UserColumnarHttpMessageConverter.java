@@ -0,0 +1,62 @@
+package com.clearsolutions.usersapi.codec;
+
+import com.clearsolutions.usersapi.dto.UserDto;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+
+/**
+ * Reads and writes {@code List<UserDto>} bodies in the {@link UserColumnarCodec} layout. Any other
+ * type is left to the remaining converters.
+ */
+public class UserColumnarHttpMessageConverter extends AbstractGenericHttpMessageConverter<List<UserDto>> {
+
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(UserColumnarCodec.MEDIA_TYPE);
+
+    public UserColumnarHttpMessageConverter() {
+        super(MEDIA_TYPE);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return false;
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return isUserList(type) && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return isUserList(type != null ? type : clazz) && canWrite(mediaType);
+    }
+
+    @Override
+    public List<UserDto> read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+        return UserColumnarCodec.read(inputMessage.getBody());
+    }
+
+    @Override
+    protected List<UserDto> readInternal(Class<? extends List<UserDto>> clazz, HttpInputMessage inputMessage)
+            throws IOException {
+        return UserColumnarCodec.read(inputMessage.getBody());
+    }
+
+    @Override
+    protected void writeInternal(List<UserDto> users, Type type, HttpOutputMessage outputMessage) throws IOException {
+        UserColumnarCodec.write(users, outputMessage.getBody());
+    }
+
+    private static boolean isUserList(Type type) {
+        ResolvableType resolvableType = ResolvableType.forType(type);
+        return List.class.isAssignableFrom(resolvableType.toClass())
+                && UserDto.class.equals(resolvableType.getGeneric(0).resolve());
+    }
+}
@@ -0,0 +1,48 @@
+package com.clearsolutions.usersapi.config;
+
+import com.clearsolutions.usersapi.codec.UserColumnarHttpMessageConverter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Smile and CBOR are registered by Spring MVC itself once their Jackson modules are on the classpath, but with
+ * a plain ObjectMapper; they are swapped in place for converters built from Boot's customized mapper, so they
+ * serialize like the JSON converter. The columnar user list layout is appended after the defaults so that
+ * clients accepting any media type keep getting JSON.
+ */
+@Configuration
+public class MessageConvertersConfig implements WebMvcConfigurer {
+
+    private final ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilder;
+
+    public MessageConvertersConfig(ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilder) {
+        this.objectMapperBuilder = objectMapperBuilder;
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.replaceAll(converter -> {
+            if (converter instanceof MappingJackson2SmileHttpMessageConverter) {
+                return new MappingJackson2SmileHttpMessageConverter(objectMapperBuilder.getObject()
+                        .factory(new SmileFactory())
+                        .build());
+            }
+            if (converter instanceof MappingJackson2CborHttpMessageConverter) {
+                return new MappingJackson2CborHttpMessageConverter(objectMapperBuilder.getObject()
+                        .factory(new CBORFactory())
+                        .build());
+            }
+            return converter;
+        });
+        converters.add(new UserColumnarHttpMessageConverter());
+    }
+}
@@ -0,0 +1,159 @@
+package com.clearsolutions.usersapi.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands out connections from a set of replica pools, skipping pools that failed their last health
+ * check, and falls back to the primary when no replica is usable. Meant to be plugged in as the
+ * read-only target of a {@code LazyConnectionDataSourceProxy}.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private final List<Replica> replicas;
+
+    private final DataSource primary;
+
+    private final ReplicaRoutingProperties.Strategy strategy;
+
+    private final Duration healthCheckTimeout;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final Counter fallbacks;
+
+    private final ScheduledExecutorService healthChecker;
+
+    public ReplicaRoutingDataSource(List<HikariDataSource> replicas,
+                                    DataSource primary,
+                                    ReplicaRoutingProperties.Strategy strategy,
+                                    Duration healthCheckInterval,
+                                    Duration healthCheckTimeout,
+                                    MeterRegistry meterRegistry) {
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.primary = primary;
+        this.strategy = strategy;
+        this.healthCheckTimeout = healthCheckTimeout;
+
+        Gauge.builder("users.datasource.replicas.healthy", this, ReplicaRoutingDataSource::healthyReplicas)
+                .description("Replica pools that passed their last health check")
+                .register(meterRegistry);
+        this.fallbacks = Counter.builder("users.datasource.replicas.fallbacks")
+                .description("Read-only connections served by the primary because no replica was usable")
+                .register(meterRegistry);
+
+        this.healthChecker = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                .name("users-replica-health")
+                .daemon()
+                .factory());
+        long intervalMillis = healthCheckInterval.toMillis();
+        healthChecker.scheduleWithFixedDelay(this::checkHealth, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        for (Replica replica : candidates()) {
+            try {
+                return replica.dataSource.getConnection();
+            } catch (SQLException | RuntimeException e) {
+                // Hikari reports a bad URL or a failed pool start as a RuntimeException.
+                markDown(replica, e);
+            }
+        }
+        fallbacks.increment();
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new UnsupportedOperationException("Replica connections use the credentials of their pool");
+    }
+
+    public void checkHealth() {
+        for (Replica replica : replicas) {
+            boolean healthy;
+            try (Connection connection = replica.dataSource.getConnection()) {
+                healthy = connection.isValid((int) Math.max(1, healthCheckTimeout.toSeconds()));
+            } catch (SQLException | RuntimeException e) {
+                // Must not escape: a scheduled task that throws is never run again.
+                healthy = false;
+            }
+            if (healthy != replica.healthy) {
+                log.warn("Replica pool {} is now {}", replica.dataSource.getPoolName(), healthy ? "up" : "down");
+            }
+            replica.healthy = healthy;
+        }
+    }
+
+    public int healthyReplicas() {
+        return (int) replicas.stream().filter(replica -> replica.healthy).count();
+    }
+
+    @Override
+    public void close() {
+        healthChecker.shutdownNow();
+        replicas.forEach(replica -> replica.dataSource.close());
+    }
+
+    private List<Replica> candidates() {
+        List<Replica> healthy = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            if (replica.healthy) {
+                healthy.add(replica);
+            }
+        }
+        if (healthy.size() <= 1) {
+            return healthy;
+        }
+        if (strategy == ReplicaRoutingProperties.Strategy.LEAST_CONNECTIONS) {
+            healthy.sort(Comparator.comparingInt(Replica::activeConnections));
+            return healthy;
+        }
+        int start = Math.floorMod(next.getAndIncrement(), healthy.size());
+        List<Replica> ordered = new ArrayList<>(healthy.size());
+        for (int i = 0; i < healthy.size(); i++) {
+            ordered.add(healthy.get((start + i) % healthy.size()));
+        }
+        return ordered;
+    }
+
+    private void markDown(Replica replica, Exception e) {
+        if (replica.healthy) {
+            log.warn("Replica pool {} failed to hand out a connection, routing around it until it recovers",
+                    replica.dataSource.getPoolName(), e);
+        }
+        replica.healthy = false;
+    }
+
+    private static final class Replica {
+
+        final HikariDataSource dataSource;
+
+        volatile boolean healthy = true;
+
+        Replica(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        int activeConnections() {
+            return dataSource.getHikariPoolMXBean() != null ? dataSource.getHikariPoolMXBean().getActiveConnections() : 0;
+        }
+    }
+}
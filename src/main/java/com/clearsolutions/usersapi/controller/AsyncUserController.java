@@ -0,0 +1,38 @@
+package com.clearsolutions.usersapi.controller;
+
+import com.clearsolutions.usersapi.dto.IngestionTicket;
+import com.clearsolutions.usersapi.dto.UserDto;
+import com.clearsolutions.usersapi.dto.validation.OnCreate;
+import com.clearsolutions.usersapi.exceptions.ResourceNotFoundException;
+import com.clearsolutions.usersapi.service.UserIngestionQueue;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.util.UUID;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/v1/users/async")
+@ConditionalOnProperty(name = "users.async-create.enabled", havingValue = "true")
+public class AsyncUserController {
+
+    private final UserIngestionQueue userIngestionQueue;
+
+    @PostMapping
+    public ResponseEntity<IngestionTicket> createUser(@Validated(OnCreate.class) @RequestBody UserDto userDto) {
+        IngestionTicket ticket = userIngestionQueue.submit(userDto.setId(null));
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/v1/users/async/" + ticket.getId()))
+                .body(ticket);
+    }
+
+    @GetMapping("/{ticketId}")
+    public IngestionTicket findTicket(@PathVariable UUID ticketId) {
+        return userIngestionQueue.find(ticketId)
+                .orElseThrow(() -> new ResourceNotFoundException("Ticket with this id not found"));
+    }
+}
@@ -1,13 +1,18 @@
 package com.clearsolutions.usersapi.controller;
 
 import com.clearsolutions.usersapi.exceptions.*;
+import com.clearsolutions.usersapi.service.UserService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.ConstraintViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
 import java.util.List;
 import java.util.stream.Collectors;
@@ -33,12 +38,50 @@ public class ControllerAdvice {
         return new ExceptionBody(e.getMessage());
     }
 
+    @ExceptionHandler(PreconditionFailedException.class)
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    public ExceptionBody handlePreconditionFailed(PreconditionFailedException e) {
+        return new ExceptionBody(e.getMessage());
+    }
+
+    @ExceptionHandler(ResourceGoneException.class)
+    @ResponseStatus(HttpStatus.GONE)
+    public ExceptionBody handleResourceGone(ResourceGoneException e) {
+        return new ExceptionBody(e.getMessage());
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    @ResponseStatus(HttpStatus.PRECONDITION_FAILED)
+    public ExceptionBody handleOptimisticLockingFailure(OptimisticLockingFailureException e) {
+        return new ExceptionBody(UserService.VERSION_MISMATCH_MESSAGE);
+    }
+
+    @ExceptionHandler(ServiceUnavailableException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ExceptionBody handleServiceUnavailable(ServiceUnavailableException e, HttpServletResponse response) {
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        return new ExceptionBody(e.getMessage());
+    }
+
+    @ExceptionHandler(TooManyRequestsException.class)
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    public ExceptionBody handleTooManyRequests(TooManyRequestsException e, HttpServletResponse response) {
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()));
+        return new ExceptionBody(e.getMessage());
+    }
+
     @ExceptionHandler(InvalidRequestParametersException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ExceptionBody handleInvalidRequestParametersException(InvalidRequestParametersException e) {
         return new ExceptionBody(e.getMessage());
     }
 
+    @ExceptionHandler(MethodArgumentTypeMismatchException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ExceptionBody handleMethodArgumentTypeMismatch(MethodArgumentTypeMismatchException e) {
+        return new ExceptionBody("Invalid value for parameter '" + e.getName() + "'.");
+    }
+
     @ExceptionHandler(IllegalStateException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ExceptionBody handleIllegalState(IllegalStateException e) {
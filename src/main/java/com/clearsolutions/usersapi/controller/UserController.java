@@ -1,20 +1,48 @@
 package com.clearsolutions.usersapi.controller;
 
+import com.clearsolutions.usersapi.admission.AdmittedAs;
+import com.clearsolutions.usersapi.admission.EndpointClass;
+import com.clearsolutions.usersapi.dto.BatchItemResult;
+import com.clearsolutions.usersapi.dto.ChangeCursor;
+import com.clearsolutions.usersapi.dto.CursorPage;
+import com.clearsolutions.usersapi.dto.StatsBucket;
+import com.clearsolutions.usersapi.dto.UserCursor;
 import com.clearsolutions.usersapi.dto.UserDto;
+import com.clearsolutions.usersapi.dto.UserStatsDto;
 import com.clearsolutions.usersapi.dto.validation.OnCreate;
 import com.clearsolutions.usersapi.dto.validation.OnParticalUpdate;
 import com.clearsolutions.usersapi.dto.validation.OnUpdate;
 import com.clearsolutions.usersapi.entity.User;
 import com.clearsolutions.usersapi.exceptions.InvalidRequestParametersException;
+import com.clearsolutions.usersapi.exceptions.PreconditionFailedException;
 import com.clearsolutions.usersapi.mapper.UserMapper;
+import com.clearsolutions.usersapi.service.UserChangeFeed;
 import com.clearsolutions.usersapi.service.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Consumer;
 
 @RestController
 @RequiredArgsConstructor
@@ -22,18 +50,87 @@ import java.util.List;
 @RequestMapping("/api/v1/users")
 public class UserController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+
     private final UserService userService;
+    private final UserChangeFeed userChangeFeed;
     private final UserMapper userMapper;
+    private final ObjectMapper objectMapper;
 
+    @AdmittedAs(EndpointClass.RANGE)
     @GetMapping()
-    public List<UserDto> findByDateOfBirthBetween(@RequestParam("from")
+    public ResponseEntity<List<UserDto>> findByDateOfBirthBetween(@RequestParam("from")
+                                                                  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                  @RequestParam("to")
+                                                                  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                                  @RequestParam(value = "cursor", required = false) String cursor,
+                                                                  @RequestParam(value = "limit", defaultValue = "100")
+                                                                  @Min(value = 1, message = "Limit must be at least 1.")
+                                                                  @Max(value = 1000, message = "Limit must be at most 1000.") int limit) {
+        validateRange(from, to);
+        UserCursor userCursor = cursor != null ? UserCursor.decode(cursor) : null;
+        CursorPage<UserDto> page = userService.findByDateOfBirthBetween(from, to, userCursor, limit);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.hasNext()) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getContent());
+    }
+
+    @AdmittedAs(EndpointClass.RANGE)
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportByDateOfBirthBetween(@RequestParam("from")
+                                                                            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                            @RequestParam("to")
+                                                                            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        validateRange(from, to);
+        StreamingResponseBody body = outputStream ->
+                userService.exportByDateOfBirthBetween(from, to, new NdjsonWriter(outputStream, objectMapper));
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    @AdmittedAs(EndpointClass.RANGE)
+    @GetMapping("/stats")
+    public UserStatsDto countByDateOfBirthBetween(@RequestParam("from")
                                                   @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
                                                   @RequestParam("to")
-                                                  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
-        if (from.isAfter(to)) {
-            throw new InvalidRequestParametersException("'from' date must be before 'to' date");
+                                                  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                  @RequestParam(value = "bucket", defaultValue = "YEAR") StatsBucket bucket) {
+        validateRange(from, to);
+        return userService.countByDateOfBirthBetween(from, to, bucket);
+    }
+
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter changes(@RequestParam(value = "after", required = false) String after,
+                              @RequestHeader(value = LAST_EVENT_ID_HEADER, required = false) String lastEventId) {
+        String cursor = lastEventId != null ? lastEventId : after;
+        return userChangeFeed.subscribe(cursor != null ? ChangeCursor.decode(cursor) : null);
+    }
+
+    @AdmittedAs(EndpointClass.RANGE)
+    @GetMapping("/search")
+    public List<UserDto> search(@RequestParam("q")
+                                @NotBlank(message = "Search query must be not empty.")
+                                @Size(min = 2, max = 100, message = "Search query must be between 2 and 100 characters.") String query,
+                                @RequestParam(value = "limit", defaultValue = "20")
+                                @Min(value = 1, message = "Limit must be at least 1.")
+                                @Max(value = 100, message = "Limit must be at most 100.") int limit) {
+        return userService.search(query, limit);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<UserDto> findById(@PathVariable Long id, WebRequest webRequest) {
+        UserDto userDto = userService.findById(id);
+        String eTag = eTag(userDto);
+        if (webRequest.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
         }
-        return userService.findByDateOfBirthBetween(from, to);
+        return ResponseEntity.ok().eTag(eTag).body(userDto);
     }
 
     @PostMapping
@@ -42,24 +139,92 @@ public class UserController {
         return userService.create(user);
     }
 
+    @PostMapping("/batch")
+    public List<BatchItemResult> createUsers(@RequestBody
+                                             @NotEmpty(message = "Batch must contain at least one user.")
+                                             @Size(max = 1000, message = "Batch must contain at most 1000 users.")
+                                             List<UserDto> userDtos) {
+        return userService.createAll(userDtos);
+    }
+
     @PutMapping("/{id}")
-    public UserDto updateUser(@PathVariable Long id,
-                              @Validated(OnUpdate.class) @RequestBody UserDto userDto) {
+    public ResponseEntity<UserDto> updateUser(@PathVariable Long id,
+                                              @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                              @Validated(OnUpdate.class) @RequestBody UserDto userDto) {
         User user = userMapper.toEntity(userDto);
-        return userService.update(id, user);
+        UserDto updatedUser = userService.update(id, user, expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(eTag(updatedUser)).body(updatedUser);
     }
 
     @PatchMapping("/{id}")
-    public UserDto particularUpdateUser(@PathVariable Long id,
-                                     @Validated(OnParticalUpdate.class) @RequestBody UserDto userDto) {
+    public ResponseEntity<UserDto> particularUpdateUser(@PathVariable Long id,
+                                                        @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                        @Validated(OnParticalUpdate.class) @RequestBody UserDto userDto) {
         User user = userMapper.toEntity(userDto);
-        return userService.particularUpdate(id, user);
+        UserDto updatedUser = userService.particularUpdate(id, user, expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(eTag(updatedUser)).body(updatedUser);
     }
 
     @DeleteMapping("/{id}")
-    public void deleteById(@PathVariable Long id) {
-        userService.delete(id);
+    public void deleteById(@PathVariable Long id,
+                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        userService.delete(id, expectedVersion(ifMatch));
+    }
+
+    private static String eTag(UserDto userDto) {
+        return "\"" + userDto.getVersion() + "\"";
+    }
+
+    private static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String eTag = ifMatch.trim();
+        if (eTag.startsWith("W/")) {
+            eTag = eTag.substring(2);
+        }
+        if (eTag.length() < 2 || !eTag.startsWith("\"") || !eTag.endsWith("\"")) {
+            throw new InvalidRequestParametersException("Invalid If-Match header");
+        }
+        try {
+            return Long.parseLong(eTag.substring(1, eTag.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new PreconditionFailedException(UserService.VERSION_MISMATCH_MESSAGE);
+        }
     }
 
+    private void validateRange(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new InvalidRequestParametersException("'from' date must be before 'to' date");
+        }
+    }
+
+    private static class NdjsonWriter implements Consumer<UserDto> {
+
+        private static final int FLUSH_EVERY = 500;
+
+        private final OutputStream outputStream;
+        private final ObjectWriter objectWriter;
+        private int pending;
+
+        NdjsonWriter(OutputStream outputStream, ObjectMapper objectMapper) {
+            this.outputStream = outputStream;
+            this.objectWriter = objectMapper.writerFor(UserDto.class);
+        }
+
+        @Override
+        public void accept(UserDto userDto) {
+            try {
+                outputStream.write(objectWriter.writeValueAsBytes(userDto));
+                outputStream.write('\n');
+                if (++pending == FLUSH_EVERY) {
+                    outputStream.flush();
+                    pending = 0;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
 
 }
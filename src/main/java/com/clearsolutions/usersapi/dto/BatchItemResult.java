@@ -0,0 +1,36 @@
+package com.clearsolutions.usersapi.dto;
+
+import com.clearsolutions.usersapi.exceptions.ExceptionBody;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+@Data
+@Accessors(chain = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchItemResult {
+
+    public enum Status {
+        CREATED,
+        FAILED
+    }
+
+    private int index;
+    private Status status;
+    private UserDto user;
+    private ExceptionBody error;
+
+    public static BatchItemResult created(int index, UserDto user) {
+        return new BatchItemResult()
+                .setIndex(index)
+                .setStatus(Status.CREATED)
+                .setUser(user);
+    }
+
+    public static BatchItemResult failed(int index, ExceptionBody error) {
+        return new BatchItemResult()
+                .setIndex(index)
+                .setStatus(Status.FAILED)
+                .setError(error);
+    }
+}
@@ -0,0 +1,14 @@
+package com.clearsolutions.usersapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BucketCountDto {
+
+    private String bucket;
+    private long count;
+}
@@ -0,0 +1,41 @@
+package com.clearsolutions.usersapi.dto;
+
+import com.clearsolutions.usersapi.exceptions.InvalidRequestParametersException;
+import lombok.Value;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque position in the {@code (txId, id)} ordering of the change feed.
+ */
+@Value
+public class ChangeCursor {
+
+    public static final ChangeCursor START = new ChangeCursor(0L, 0L);
+
+    Long txId;
+    Long id;
+
+    public boolean isBefore(ChangeCursor other) {
+        int byTx = txId.compareTo(other.txId);
+        return byTx < 0 || byTx == 0 && id < other.id;
+    }
+
+    public String encode() {
+        String raw = txId + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ChangeCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            Long txId = Long.valueOf(raw.substring(0, separator));
+            Long id = Long.valueOf(raw.substring(separator + 1));
+            return new ChangeCursor(txId, id);
+        } catch (RuntimeException e) {
+            throw new InvalidRequestParametersException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.clearsolutions.usersapi.dto;
+
+public enum ChangeOperation {
+    CREATED,
+    UPDATED,
+    DELETED
+}
@@ -0,0 +1,39 @@
+package com.clearsolutions.usersapi.dto;
+
+import com.clearsolutions.usersapi.exceptions.ExceptionBody;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.util.UUID;
+
+@Data
+@Accessors(chain = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class IngestionTicket {
+
+    public enum Status {
+        QUEUED,
+        CREATED,
+        FAILED
+    }
+
+    private UUID id;
+    private Status status;
+    private UserDto user;
+    private ExceptionBody error;
+
+    public static IngestionTicket queued(UUID id) {
+        return new IngestionTicket()
+                .setId(id)
+                .setStatus(Status.QUEUED);
+    }
+
+    public static IngestionTicket completed(UUID id, BatchItemResult result) {
+        return new IngestionTicket()
+                .setId(id)
+                .setStatus(result.getStatus() == BatchItemResult.Status.CREATED ? Status.CREATED : Status.FAILED)
+                .setUser(result.getUser())
+                .setError(result.getError());
+    }
+}
@@ -0,0 +1,7 @@
+package com.clearsolutions.usersapi.dto;
+
+public enum StatsBucket {
+    YEAR,
+    MONTH,
+    AGE_BAND
+}
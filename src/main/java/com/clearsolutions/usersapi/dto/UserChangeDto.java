@@ -0,0 +1,23 @@
+package com.clearsolutions.usersapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserChangeDto {
+
+    private ChangeOperation operation;
+    private Long userId;
+    private Instant changedAt;
+
+    @JsonRawValue
+    private String user;
+}
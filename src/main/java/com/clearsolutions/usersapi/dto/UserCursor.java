@@ -0,0 +1,39 @@
+package com.clearsolutions.usersapi.dto;
+
+import com.clearsolutions.usersapi.exceptions.InvalidRequestParametersException;
+import lombok.Value;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+
+/**
+ * Opaque keyset position in the {@code (birthDate, id)} ordering of users.
+ */
+@Value
+public class UserCursor {
+
+    LocalDate birthDate;
+    Long id;
+
+    public static UserCursor after(UserDto last) {
+        return new UserCursor(last.getBirthDate(), last.getId());
+    }
+
+    public String encode() {
+        String raw = birthDate.toEpochDay() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static UserCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            LocalDate birthDate = LocalDate.ofEpochDay(Long.parseLong(raw.substring(0, separator)));
+            Long id = Long.valueOf(raw.substring(separator + 1));
+            return new UserCursor(birthDate, id);
+        } catch (RuntimeException e) {
+            throw new InvalidRequestParametersException("Invalid cursor");
+        }
+    }
+}
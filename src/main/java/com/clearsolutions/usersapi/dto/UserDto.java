@@ -7,13 +7,17 @@ import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Past;
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import lombok.experimental.Accessors;
 
 import java.time.LocalDate;
 
 @Data
 @Accessors(chain = true)
+@NoArgsConstructor
+@AllArgsConstructor
 public class UserDto {
     @NotNull(message = "Email must be not null.", groups = OnUpdate.class)
     private Long id;
@@ -37,4 +41,6 @@ public class UserDto {
     private String address;
 
     private String phoneNumber;
+
+    private Long version;
 }
@@ -0,0 +1,20 @@
+package com.clearsolutions.usersapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserStatsDto {
+
+    private StatsBucket bucket;
+    private LocalDate from;
+    private LocalDate to;
+    private long total;
+    private List<BucketCountDto> counts;
+}
@@ -7,22 +7,41 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.experimental.Accessors;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDate;
 
 @Data
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = User.CACHE_REGION)
 @Builder
 @Accessors(chain = true)
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name = "users")
+@Table(name = "users", indexes = @Index(name = "idx_users_birth_date_id", columnList = "birth_date, id"))
+@SqlResultSetMapping(name = User.PATCHED_USER_MAPPING,
+        entities = @EntityResult(entityClass = User.class),
+        columns = @ColumnResult(name = "previous_email"))
 public class User {
+
+    public static final String CACHE_REGION = "users.entity";
+
+    public static final String QUERY_CACHE_REGION = "users.queries";
+
+    public static final String PATCHED_USER_MAPPING = "PatchedUser";
+
+    /**
+     * Unique index on {@code lower(email)}, created by the V1 migration.
+     */
+    public static final String EMAIL_UNIQUE_INDEX = "ux_users_email_lower";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @UserIdSequence
     private Long id;
 
-    @Column(nullable = false, unique = true)
+    @Column(nullable = false)
     private String email;
 
     @Column(nullable = false)
@@ -38,4 +57,8 @@ public class User {
 
     private String phoneNumber;
 
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
 }
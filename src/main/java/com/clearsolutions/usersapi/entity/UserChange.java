@@ -0,0 +1,47 @@
+package com.clearsolutions.usersapi.entity;
+
+import com.clearsolutions.usersapi.dto.ChangeOperation;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.time.Instant;
+
+@Data
+@Entity
+@Builder
+@Accessors(chain = true)
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "user_changes", indexes = {
+        @Index(name = "idx_user_changes_tx_id_id", columnList = "tx_id, id"),
+        @Index(name = "idx_user_changes_changed_at", columnList = "changed_at")
+})
+public class UserChange {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_changes_seq")
+    @SequenceGenerator(name = "user_changes_seq", sequenceName = "user_changes_seq", allocationSize = 50)
+    private Long id;
+
+    @ColumnDefault("cast(cast(pg_current_xact_id() as text) as bigint)")
+    @Column(name = "tx_id", nullable = false, insertable = false, updatable = false)
+    private Long txId;
+
+    @Column(nullable = false)
+    private Long userId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private ChangeOperation operation;
+
+    @Column(nullable = false)
+    private Instant changedAt;
+
+    @Column(columnDefinition = "text")
+    private String payload;
+}
@@ -0,0 +1,21 @@
+package com.clearsolutions.usersapi.entity;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Generates the annotated id from a pooled database sequence through {@link UserIdGenerator}.
+ */
+@IdGeneratorType(UserIdGenerator.class)
+@Retention(RUNTIME)
+@Target({FIELD, METHOD})
+public @interface UserIdSequence {
+
+    String name() default "users_id_seq";
+}
@@ -0,0 +1,7 @@
+package com.clearsolutions.usersapi.exceptions;
+
+public class PreconditionFailedException extends RuntimeException {
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
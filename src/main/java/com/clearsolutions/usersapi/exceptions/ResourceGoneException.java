@@ -0,0 +1,7 @@
+package com.clearsolutions.usersapi.exceptions;
+
+public class ResourceGoneException extends RuntimeException {
+    public ResourceGoneException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.clearsolutions.usersapi.exceptions;
+
+public class ServiceUnavailableException extends RuntimeException {
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+}
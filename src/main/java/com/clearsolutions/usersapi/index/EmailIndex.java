@@ -0,0 +1,68 @@
+package com.clearsolutions.usersapi.index;
+
+import com.clearsolutions.usersapi.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Set of normalized emails known to be taken. A miss means the email is free as far as this
+ * instance knows, so the duplicate lookup can be skipped and the unique constraint has the
+ * final word; a hit must still be confirmed against the database.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EmailIndex {
+
+    private final UserRepository userRepository;
+
+    private final Set<String> emails = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean warmedUp;
+
+    @Transactional(readOnly = true)
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try (Stream<String> existingEmails = userRepository.streamAllEmails()) {
+            existingEmails.map(EmailIndex::normalize).forEach(emails::add);
+        }
+        warmedUp = true;
+        log.info("Email index warmed up with {} entries", emails.size());
+    }
+
+    public boolean mightContain(String email) {
+        return !warmedUp || emails.contains(normalize(email));
+    }
+
+    public void add(String email) {
+        emails.add(normalize(email));
+    }
+
+    public void removeAfterCommit(String email) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            emails.remove(normalize(email));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                emails.remove(normalize(email));
+            }
+        });
+    }
+
+    public static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
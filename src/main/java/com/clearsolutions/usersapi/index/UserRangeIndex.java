@@ -0,0 +1,523 @@
+package com.clearsolutions.usersapi.index;
+
+import com.clearsolutions.usersapi.dto.UserCursor;
+import com.clearsolutions.usersapi.dto.UserDto;
+import com.clearsolutions.usersapi.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * In-process index of users ordered by {@code (birthDate, id)}.
+ * <p>
+ * The bulk of the data lives in an immutable segment: sorted primitive arrays of epoch days and ids on the
+ * heap, and the remaining DTO fields packed into a direct buffer. Writes applied after commit go to a small
+ * on-heap overlay that shadows the segment. Once the overlay grows past the compaction threshold it is merged
+ * into a new segment in the background; writes made meanwhile are replayed onto the new state when it is
+ * swapped in. The direct buffer is split into chunks addressed by long offsets, so the segment is not
+ * bounded by the 2 GB limit of a single buffer. Only writes made through this instance are seen, so the index is meant for
+ * single-writer deployments or read paths that tolerate that lag.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserRangeIndex {
+
+    private static final long ONE_MILLION = 1_000_000L;
+
+    private final UserRepository userRepository;
+
+    private final Object writeLock = new Object();
+
+    private final AtomicLong inconsistencies = new AtomicLong();
+
+    @Value("${users.range-index.enabled:false}")
+    private boolean enabled;
+
+    @Value("${users.range-index.consistency-check:false}")
+    private boolean consistencyCheck;
+
+    @Value("${users.range-index.compaction-threshold:10000}")
+    private int compactionThreshold;
+
+    @Value("${users.range-index.chunk-bytes:67108864}")
+    private int chunkBytes;
+
+    private Executor compactionExecutor = task -> Thread.ofPlatform()
+            .name("users-range-index-compaction")
+            .daemon()
+            .start(task);
+
+    private volatile State state = new State(Segment.EMPTY);
+
+    private volatile boolean ready;
+
+    /**
+     * Ids written while a compaction is running, or null when none is. Guarded by {@link #writeLock}.
+     */
+    private Set<Long> writtenDuringCompaction;
+
+    @Transactional(readOnly = true)
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        if (!enabled) {
+            return;
+        }
+        long started = System.nanoTime();
+        SegmentBuilder builder = new SegmentBuilder(chunkBytes);
+        try (Stream<UserDto> users = userRepository.streamAllDtos()) {
+            users.forEach(builder::add);
+        }
+        Segment segment = builder.build();
+
+        synchronized (writeLock) {
+            state = state.withSegment(segment);
+        }
+        ready = true;
+
+        log.info("Range index built in {} ms: {} users, {} KB heap ({} MB per million users), {} KB off-heap",
+                (System.nanoTime() - started) / 1_000_000, segment.size(), segment.heapBytes() / 1024,
+                Segment.HEAP_BYTES_PER_USER * ONE_MILLION / (1024 * 1024), segment.offHeapBytes() / 1024);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public boolean isConsistencyCheckEnabled() {
+        return consistencyCheck;
+    }
+
+    public long getInconsistencies() {
+        return inconsistencies.get();
+    }
+
+    /**
+     * Returns up to {@code max} users born between {@code from} and {@code to} (inclusive) that come after
+     * {@code cursor}, in {@code (birthDate, id)} order.
+     */
+    public List<UserDto> find(LocalDate from, LocalDate to, UserCursor cursor, int max) {
+        State current = state;
+        Segment segment = current.segment;
+
+        Key lower = new Key(from.toEpochDay(), Long.MIN_VALUE);
+        boolean lowerInclusive = true;
+        if (cursor != null) {
+            Key after = new Key(cursor.getBirthDate().toEpochDay(), cursor.getId());
+            if (after.compareTo(lower) >= 0) {
+                lower = after;
+                lowerInclusive = false;
+            }
+        }
+        Key upper = new Key(to.toEpochDay(), Long.MAX_VALUE);
+        if (lower.compareTo(upper) > 0) {
+            return List.of();
+        }
+
+        int position = lowerInclusive ? segment.firstAtOrAfter(lower) : segment.firstAfter(lower);
+        int end = segment.firstAfter(upper);
+        Iterator<UserDto> overlay = current.overlay.subMap(lower, lowerInclusive, upper, true).values().iterator();
+        UserDto pending = overlay.hasNext() ? overlay.next() : null;
+
+        List<UserDto> result = new ArrayList<>(Math.min(max, 1024));
+        while (result.size() < max) {
+            while (position < end && current.shadowed.contains(segment.ids[position])) {
+                position++;
+            }
+            boolean segmentHasNext = position < end;
+            if (!segmentHasNext && pending == null) {
+                break;
+            }
+            if (pending != null && (!segmentHasNext || Key.of(pending).compareTo(segment.keyAt(position)) < 0)) {
+                result.add(pending);
+                pending = overlay.hasNext() ? overlay.next() : null;
+            } else {
+                result.add(segment.read(position++));
+            }
+        }
+        return result;
+    }
+
+    public void checkConsistency(List<UserDto> indexed, List<UserDto> database) {
+        if (!indexed.equals(database)) {
+            long total = inconsistencies.incrementAndGet();
+            log.warn("Range index diverged from the database ({} indexed rows vs {} database rows, {} divergences so far)",
+                    indexed.size(), database.size(), total);
+        }
+    }
+
+    public void upsertAfterCommit(UserDto user) {
+        if (enabled) {
+            UserDto snapshot = copyOf(user);
+            afterCommit(() -> upsert(snapshot));
+        }
+    }
+
+    public void removeAfterCommit(Long id) {
+        if (enabled) {
+            afterCommit(() -> remove(id));
+        }
+    }
+
+    private void upsert(UserDto user) {
+        synchronized (writeLock) {
+            State current = state;
+            Key key = Key.of(user);
+            Key previous = current.overlayKeys.put(user.getId(), key);
+            current.shadowed.add(user.getId());
+            current.overlay.put(key, user);
+            if (previous != null && !previous.equals(key)) {
+                current.overlay.remove(previous);
+            }
+            if (writtenDuringCompaction != null) {
+                writtenDuringCompaction.add(user.getId());
+            }
+            compactIfNeeded(current);
+        }
+    }
+
+    private void remove(Long id) {
+        synchronized (writeLock) {
+            State current = state;
+            current.shadowed.add(id);
+            Key previous = current.overlayKeys.remove(id);
+            if (previous != null) {
+                current.overlay.remove(previous);
+            }
+            if (writtenDuringCompaction != null) {
+                writtenDuringCompaction.add(id);
+            }
+            compactIfNeeded(current);
+        }
+    }
+
+    private void compactIfNeeded(State current) {
+        if (!ready || writtenDuringCompaction != null || current.shadowed.size() < compactionThreshold) {
+            return;
+        }
+        State snapshot = current.copy();
+        writtenDuringCompaction = new HashSet<>();
+        try {
+            compactionExecutor.execute(() -> compact(snapshot));
+        } catch (RuntimeException e) {
+            writtenDuringCompaction = null;
+            log.warn("Could not start range index compaction", e);
+        }
+    }
+
+    private void compact(State snapshot) {
+        Segment segment;
+        try {
+            segment = merge(snapshot);
+        } catch (RuntimeException e) {
+            log.warn("Range index compaction failed, keeping the current segment", e);
+            synchronized (writeLock) {
+                writtenDuringCompaction = null;
+            }
+            return;
+        }
+        synchronized (writeLock) {
+            State live = state;
+            State next = new State(segment);
+            for (Long id : writtenDuringCompaction) {
+                next.shadowed.add(id);
+                Key key = live.overlayKeys.get(id);
+                if (key != null) {
+                    next.overlayKeys.put(id, key);
+                    next.overlay.put(key, live.overlay.get(key));
+                }
+            }
+            state = next;
+            writtenDuringCompaction = null;
+        }
+    }
+
+    private Segment merge(State snapshot) {
+        Segment segment = snapshot.segment;
+        SegmentBuilder builder = new SegmentBuilder(chunkBytes);
+        Iterator<UserDto> overlay = snapshot.overlay.values().iterator();
+        UserDto pending = overlay.hasNext() ? overlay.next() : null;
+        for (int position = 0; position < segment.size(); position++) {
+            if (snapshot.shadowed.contains(segment.ids[position])) {
+                continue;
+            }
+            Key key = segment.keyAt(position);
+            while (pending != null && Key.of(pending).compareTo(key) < 0) {
+                builder.add(pending);
+                pending = overlay.hasNext() ? overlay.next() : null;
+            }
+            builder.add(segment.read(position));
+        }
+        while (pending != null) {
+            builder.add(pending);
+            pending = overlay.hasNext() ? overlay.next() : null;
+        }
+        return builder.build();
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static UserDto copyOf(UserDto user) {
+        return new UserDto(user.getId(), user.getEmail(), user.getFirstName(), user.getSurname(),
+                user.getBirthDate(), user.getAddress(), user.getPhoneNumber(), user.getVersion());
+    }
+
+    private record Key(long epochDay, long id) implements Comparable<Key> {
+
+        static Key of(UserDto user) {
+            return new Key(user.getBirthDate().toEpochDay(), user.getId());
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            int byDay = Long.compare(epochDay, other.epochDay);
+            return byDay != 0 ? byDay : Long.compare(id, other.id);
+        }
+    }
+
+    private static final class State {
+
+        final Segment segment;
+        final ConcurrentSkipListMap<Key, UserDto> overlay;
+        final ConcurrentHashMap<Long, Key> overlayKeys;
+        final Set<Long> shadowed;
+
+        State(Segment segment) {
+            this(segment, new ConcurrentSkipListMap<>(), new ConcurrentHashMap<>(), ConcurrentHashMap.newKeySet());
+        }
+
+        private State(Segment segment, ConcurrentSkipListMap<Key, UserDto> overlay,
+                      ConcurrentHashMap<Long, Key> overlayKeys, Set<Long> shadowed) {
+            this.segment = segment;
+            this.overlay = overlay;
+            this.overlayKeys = overlayKeys;
+            this.shadowed = shadowed;
+        }
+
+        State withSegment(Segment segment) {
+            return new State(segment, overlay, overlayKeys, shadowed);
+        }
+
+        State copy() {
+            Set<Long> shadowedCopy = ConcurrentHashMap.newKeySet(shadowed.size());
+            shadowedCopy.addAll(shadowed);
+            return new State(segment, new ConcurrentSkipListMap<>(overlay), new ConcurrentHashMap<>(overlayKeys),
+                    shadowedCopy);
+        }
+    }
+
+    /**
+     * Immutable sorted run of users. Records live in direct buffer chunks; an offset holds the chunk index in
+     * its upper 32 bits and the position within the chunk in the lower 32, and a record never spans two
+     * chunks. Each record stores the version as a long (-1 for null), then email, first name, surname,
+     * address and phone number as length-prefixed UTF-8, with a length of -1 for null.
+     */
+    private static final class Segment {
+
+        static final int HEAP_BYTES_PER_USER = Integer.BYTES + Long.BYTES + Long.BYTES;
+        static final Segment EMPTY = new Segment(new int[0], new long[0], new long[0], new ByteBuffer[0]);
+
+        final int[] epochDays;
+        final long[] ids;
+        final long[] offsets;
+        final ByteBuffer[] chunks;
+
+        Segment(int[] epochDays, long[] ids, long[] offsets, ByteBuffer[] chunks) {
+            this.epochDays = epochDays;
+            this.ids = ids;
+            this.offsets = offsets;
+            this.chunks = chunks;
+        }
+
+        int size() {
+            return ids.length;
+        }
+
+        long heapBytes() {
+            return (long) size() * HEAP_BYTES_PER_USER;
+        }
+
+        long offHeapBytes() {
+            long bytes = 0;
+            for (ByteBuffer chunk : chunks) {
+                bytes += chunk.capacity();
+            }
+            return bytes;
+        }
+
+        Key keyAt(int position) {
+            return new Key(epochDays[position], ids[position]);
+        }
+
+        int firstAtOrAfter(Key key) {
+            int low = 0;
+            int high = size();
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (keyAt(middle).compareTo(key) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        int firstAfter(Key key) {
+            int low = 0;
+            int high = size();
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (keyAt(middle).compareTo(key) <= 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        UserDto read(int position) {
+            ByteBuffer records = chunks[(int) (offsets[position] >>> 32)];
+            int offset = (int) offsets[position];
+            int[] cursor = {offset + Long.BYTES};
+            long version = records.getLong(offset);
+            return new UserDto()
+                    .setId(ids[position])
+                    .setBirthDate(LocalDate.ofEpochDay(epochDays[position]))
+                    .setEmail(readString(records, cursor))
+                    .setFirstName(readString(records, cursor))
+                    .setSurname(readString(records, cursor))
+                    .setAddress(readString(records, cursor))
+                    .setPhoneNumber(readString(records, cursor))
+                    .setVersion(version >= 0 ? version : null);
+        }
+
+        private static String readString(ByteBuffer records, int[] cursor) {
+            int length = records.getInt(cursor[0]);
+            cursor[0] += Integer.BYTES;
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            records.get(cursor[0], bytes, 0, length);
+            cursor[0] += length;
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static final class SegmentBuilder {
+
+        private static final int INITIAL_CHUNK_BYTES = 64 * 1024;
+
+        private final int chunkBytes;
+        private final List<ByteBuffer> chunks = new ArrayList<>();
+        private int[] epochDays = new int[1024];
+        private long[] ids = new long[1024];
+        private long[] offsets = new long[1024];
+        private ByteBuffer records;
+        private int size;
+
+        SegmentBuilder(int chunkBytes) {
+            this.chunkBytes = chunkBytes;
+            this.records = ByteBuffer.allocateDirect(Math.min(INITIAL_CHUNK_BYTES, chunkBytes));
+            this.chunks.add(records);
+        }
+
+        void add(UserDto user) {
+            if (size == ids.length) {
+                epochDays = Arrays.copyOf(epochDays, size * 2);
+                ids = Arrays.copyOf(ids, size * 2);
+                offsets = Arrays.copyOf(offsets, size * 2);
+            }
+            byte[][] fields = {utf8(user.getEmail()), utf8(user.getFirstName()), utf8(user.getSurname()),
+                    utf8(user.getAddress()), utf8(user.getPhoneNumber())};
+            int length = Long.BYTES;
+            for (byte[] field : fields) {
+                length += Integer.BYTES + (field != null ? field.length : 0);
+            }
+            ensureCapacity(length);
+
+            epochDays[size] = Math.toIntExact(user.getBirthDate().toEpochDay());
+            ids[size] = user.getId();
+            offsets[size] = ((long) (chunks.size() - 1) << 32) | records.position();
+            records.putLong(user.getVersion() != null ? user.getVersion() : -1);
+            for (byte[] field : fields) {
+                records.putInt(field != null ? field.length : -1);
+                if (field != null) {
+                    records.put(field);
+                }
+            }
+            size++;
+        }
+
+        Segment build() {
+            ByteBuffer[] compacted = new ByteBuffer[chunks.size()];
+            for (int i = 0; i < compacted.length; i++) {
+                ByteBuffer chunk = chunks.get(i);
+                ByteBuffer compact = ByteBuffer.allocateDirect(chunk.position());
+                compact.put(chunk.flip()).flip();
+                compacted[i] = compact.asReadOnlyBuffer();
+            }
+            return new Segment(Arrays.copyOf(epochDays, size), Arrays.copyOf(ids, size),
+                    Arrays.copyOf(offsets, size), compacted);
+        }
+
+        private static byte[] utf8(String value) {
+            return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+        }
+
+        /**
+         * Makes room for a record of {@code bytes} in the current chunk, growing it up to the chunk size and
+         * starting a new chunk once it is full.
+         */
+        private void ensureCapacity(int bytes) {
+            if (records.remaining() >= bytes) {
+                return;
+            }
+            long required = (long) records.position() + bytes;
+            if (required <= chunkBytes) {
+                int capacity = (int) Math.min(chunkBytes, Math.max(required, (long) records.capacity() * 2));
+                ByteBuffer grown = ByteBuffer.allocateDirect(capacity);
+                grown.put(records.flip());
+                records = grown;
+                chunks.set(chunks.size() - 1, grown);
+            } else {
+                records = ByteBuffer.allocateDirect(Math.max(bytes, Math.min(INITIAL_CHUNK_BYTES, chunkBytes)));
+                chunks.add(records);
+            }
+        }
+    }
+}
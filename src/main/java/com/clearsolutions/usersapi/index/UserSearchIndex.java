@@ -0,0 +1,195 @@
+package com.clearsolutions.usersapi.index;
+
+import com.clearsolutions.usersapi.dto.UserDto;
+import com.clearsolutions.usersapi.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+
+/**
+ * Prefix index over first name, surname and email. Each of those fields is stored lower-cased as a
+ * {@code term \0 id} entry in a sorted set, so a prefix lookup is a range scan that stops as soon as
+ * enough ids are collected. Like {@link UserRangeIndex} it only sees writes made through this instance,
+ * so callers re-check the returned rows against the database. Users written by other instances are never
+ * found at all, which is why the index is off by default: with several instances, leave it off and let
+ * search use the {@code lower(...) text_pattern_ops} indexes in the database.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserSearchIndex {
+
+    private static final char SEPARATOR = '\0';
+
+    private static final long ONE_MILLION = 1_000_000L;
+
+    /**
+     * Estimated heap per entry besides its characters: the String and its byte array headers plus the skip
+     * list node and its share of index nodes.
+     */
+    private static final int ENTRY_OVERHEAD_BYTES = 24 + 16 + 36;
+
+    /**
+     * Estimated heap per user in {@code termsById}: map node, boxed id and the term list.
+     */
+    private static final int USER_OVERHEAD_BYTES = 32 + 16 + 40;
+
+    private final UserRepository userRepository;
+
+    private final NavigableSet<String> entries = new ConcurrentSkipListSet<>();
+
+    private final ConcurrentHashMap<Long, List<String>> termsById = new ConcurrentHashMap<>();
+
+    private final Set<Long> writtenDuringBuild = ConcurrentHashMap.newKeySet();
+
+    @Value("${users.search-index.enabled:false}")
+    private boolean enabled;
+
+    private volatile boolean building;
+
+    private volatile boolean ready;
+
+    @Transactional(readOnly = true)
+    @EventListener(ApplicationReadyEvent.class)
+    public void build() {
+        if (!enabled) {
+            return;
+        }
+        long started = System.nanoTime();
+        building = true;
+        try (Stream<UserDto> users = userRepository.streamAllDtos()) {
+            users.filter(user -> !writtenDuringBuild.contains(user.getId()))
+                    .forEach(this::upsert);
+        }
+        building = false;
+        writtenDuringBuild.clear();
+        ready = true;
+
+        long heapBytes = heapBytes();
+        int users = termsById.size();
+        log.info("Search index built in {} ms: {} users, {} terms, ~{} KB heap (~{} MB per million users)",
+                (System.nanoTime() - started) / 1_000_000, users, entries.size(), heapBytes / 1024,
+                users > 0 ? heapBytes * ONE_MILLION / users / (1024 * 1024) : 0);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Rough heap footprint of the index, counting Latin-1 characters as one byte.
+     */
+    public long heapBytes() {
+        long bytes = (long) termsById.size() * USER_OVERHEAD_BYTES;
+        for (String entry : entries) {
+            bytes += ENTRY_OVERHEAD_BYTES + entry.length();
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns up to {@code max} ids of users with a first name, surname or email starting with
+     * {@code prefix}, ordered by the matching term.
+     */
+    public List<Long> find(String prefix, int max) {
+        String from = normalize(prefix);
+        Set<Long> ids = new LinkedHashSet<>();
+        for (String entry : entries.subSet(from, true, from + Character.MAX_VALUE, false)) {
+            ids.add(Long.parseLong(entry.substring(entry.lastIndexOf(SEPARATOR) + 1)));
+            if (ids.size() == max) {
+                break;
+            }
+        }
+        return new ArrayList<>(ids);
+    }
+
+    public void upsertAfterCommit(UserDto user) {
+        if (enabled) {
+            List<String> terms = terms(user);
+            Long id = user.getId();
+            afterCommit(() -> replace(id, terms));
+        }
+    }
+
+    public void removeAfterCommit(Long id) {
+        if (enabled) {
+            afterCommit(() -> replace(id, List.of()));
+        }
+    }
+
+    public static boolean matches(UserDto user, String prefix) {
+        String normalized = normalize(prefix);
+        return terms(user).stream().anyMatch(term -> term.startsWith(normalized));
+    }
+
+    public static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private void upsert(UserDto user) {
+        replace(user.getId(), terms(user));
+    }
+
+    private void replace(Long id, List<String> terms) {
+        if (building) {
+            writtenDuringBuild.add(id);
+        }
+        termsById.compute(id, (key, previous) -> {
+            if (previous != null) {
+                previous.forEach(term -> entries.remove(entry(term, id)));
+            }
+            terms.forEach(term -> entries.add(entry(term, id)));
+            return terms.isEmpty() ? null : terms;
+        });
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static List<String> terms(UserDto user) {
+        List<String> terms = new ArrayList<>(3);
+        addTerm(terms, user.getFirstName());
+        addTerm(terms, user.getSurname());
+        addTerm(terms, user.getEmail());
+        return terms;
+    }
+
+    private static void addTerm(List<String> terms, String value) {
+        if (value != null) {
+            String term = normalize(value);
+            if (!term.isEmpty() && !terms.contains(term)) {
+                terms.add(term);
+            }
+        }
+    }
+
+    private static String entry(String term, Long id) {
+        return term + SEPARATOR + id;
+    }
+}
@@ -6,4 +6,5 @@ public interface Mapper <E, D> {
      D toDto(E entity);
      List<D> toDto(List<E> entityList);
      E toEntity(D dto);
+     List<E> toEntity(List<D> dtoList);
 }
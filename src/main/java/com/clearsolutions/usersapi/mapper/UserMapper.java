@@ -18,7 +18,8 @@ public class UserMapper implements Mapper<User, UserDto> {
                 .setSurname(entity.getSurname())
                 .setBirthDate(entity.getBirthDate())
                 .setAddress(entity.getAddress())
-                .setPhoneNumber(entity.getPhoneNumber());
+                .setPhoneNumber(entity.getPhoneNumber())
+                .setVersion(entity.getVersion());
 
         return dto;
 
@@ -46,4 +47,11 @@ public class UserMapper implements Mapper<User, UserDto> {
         return user;
     }
 
+    @Override
+    public List<User> toEntity(List<UserDto> dtoList) {
+        return dtoList.stream()
+                .map(this::toEntity)
+                .collect(Collectors.toList());
+    }
+
 }
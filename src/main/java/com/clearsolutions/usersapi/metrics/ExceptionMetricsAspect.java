@@ -0,0 +1,26 @@
+package com.clearsolutions.usersapi.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Before;
+import org.springframework.stereotype.Component;
+
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class ExceptionMetricsAspect {
+
+    private final MeterRegistry meterRegistry;
+
+    // Handlers may take the response or request after the exception, so match on the first argument only.
+    @Before("within(com.clearsolutions.usersapi.controller.ControllerAdvice) " +
+            "&& @annotation(org.springframework.web.bind.annotation.ExceptionHandler) && args(exception, ..)")
+    public void countHandledException(JoinPoint joinPoint, Exception exception) {
+        meterRegistry.counter("users.api.exceptions",
+                        "handler", joinPoint.getSignature().getName(),
+                        "exception", exception.getClass().getSimpleName())
+                .increment();
+    }
+}
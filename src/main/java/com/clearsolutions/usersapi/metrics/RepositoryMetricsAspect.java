@@ -0,0 +1,54 @@
+package com.clearsolutions.usersapi.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Records how many rows each {@code UserRepository} call returned or affected. Timings come from
+ * Spring Boot's {@code spring.data.repository.invocations} metric.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class RepositoryMetricsAspect {
+
+    private final MeterRegistry meterRegistry;
+
+    @Around("execution(* *(..)) && this(com.clearsolutions.usersapi.repository.UserRepository)")
+    public Object recordRows(ProceedingJoinPoint joinPoint) throws Throwable {
+        Object result = joinPoint.proceed();
+        String method = joinPoint.getSignature().getName();
+
+        if (result instanceof Stream<?> stream) {
+            LongAdder rows = new LongAdder();
+            return stream.peek(row -> rows.increment())
+                    .onClose(() -> rows(method).record(rows.sum()));
+        }
+        if (result instanceof Collection<?> collection) {
+            rows(method).record(collection.size());
+        } else if (result instanceof Optional<?> optional) {
+            rows(method).record(optional.isPresent() ? 1 : 0);
+        } else if (result instanceof Integer affected) {
+            rows(method).record(affected);
+        }
+        return result;
+    }
+
+    private DistributionSummary rows(String method) {
+        return DistributionSummary.builder("users.repository.rows")
+                .description("Rows returned or affected by a UserRepository call")
+                .tag("method", method)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,8 @@
+package com.clearsolutions.usersapi.repository;
+
+public interface BucketCount {
+
+    String getBucket();
+
+    Long getCount();
+}
@@ -0,0 +1,9 @@
+package com.clearsolutions.usersapi.repository;
+
+import com.clearsolutions.usersapi.entity.User;
+
+/**
+ * A user as written by a PATCH, with the email it had before.
+ */
+public record PatchedUser(User user, String previousEmail) {
+}
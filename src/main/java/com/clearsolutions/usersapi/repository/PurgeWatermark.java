@@ -0,0 +1,8 @@
+package com.clearsolutions.usersapi.repository;
+
+public interface PurgeWatermark {
+
+    Long getTxId();
+
+    Long getId();
+}
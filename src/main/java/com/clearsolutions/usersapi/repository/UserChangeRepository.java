@@ -0,0 +1,52 @@
+package com.clearsolutions.usersapi.repository;
+
+import com.clearsolutions.usersapi.entity.UserChange;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UserChangeRepository extends JpaRepository<UserChange, Long> {
+
+    /**
+     * Only rows written by transactions older than the oldest one still running are returned, so a
+     * transaction that commits late can never land behind a position a reader has already passed.
+     */
+    String VISIBLE = "tx_id < cast(cast(pg_snapshot_xmin(pg_current_snapshot()) as text) as bigint) ";
+
+    @Transactional(readOnly = true)
+    @Query(value = "select * from user_changes " +
+            "where (tx_id, id) > (:txId, :id) and " + VISIBLE +
+            "order by tx_id, id limit :limit", nativeQuery = true)
+    List<UserChange> findVisibleAfter(@Param("txId") long txId, @Param("id") long id, @Param("limit") int limit);
+
+    @Transactional(readOnly = true)
+    @Query(value = "select * from user_changes where " + VISIBLE +
+            "order by tx_id desc, id desc limit 1", nativeQuery = true)
+    Optional<UserChange> findLatestVisible();
+
+    @Transactional(readOnly = true)
+    @Query(value = "select purged_tx_id as \"txId\", purged_id as \"id\" from user_changes_watermark",
+            nativeQuery = true)
+    PurgeWatermark findPurgeWatermark();
+
+    /**
+     * Deletes the changes made before {@code cutoff} and, in the same statement, raises the purge
+     * watermark to the newest of them. Returns how many were deleted.
+     */
+    @Transactional
+    @Query(value = "with purged as (" +
+            "delete from user_changes where changed_at < :cutoff returning tx_id, id" +
+            "), raised as (" +
+            "update user_changes_watermark w set purged_tx_id = newest.tx_id, purged_id = newest.id " +
+            "from (select tx_id, id from purged order by tx_id desc, id desc limit 1) newest " +
+            "where (newest.tx_id, newest.id) > (w.purged_tx_id, w.purged_id)" +
+            ") select count(*) from purged", nativeQuery = true)
+    long purgeChangedBefore(@Param("cutoff") Instant cutoff);
+}
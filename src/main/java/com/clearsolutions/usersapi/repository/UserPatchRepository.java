@@ -0,0 +1,21 @@
+package com.clearsolutions.usersapi.repository;
+
+import com.clearsolutions.usersapi.entity.User;
+
+import java.util.Optional;
+
+public interface UserPatchRepository {
+
+    /**
+     * Writes only the non-null fields of {@code changes} in a single UPDATE and returns the updated row
+     * with its previous email, or an empty optional when no user with this id exists or, if
+     * {@code expectedVersion} is not null, when its version differs.
+     */
+    Optional<PatchedUser> patch(Long id, User changes, Long expectedVersion);
+
+    /**
+     * Deletes the user in a single DELETE and returns its email, or an empty optional when no user with
+     * this id exists or, if {@code expectedVersion} is not null, when its version differs.
+     */
+    Optional<String> delete(Long id, Long expectedVersion);
+}
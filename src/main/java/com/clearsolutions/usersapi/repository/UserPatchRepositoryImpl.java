@@ -0,0 +1,124 @@
+package com.clearsolutions.usersapi.repository;
+
+import com.clearsolutions.usersapi.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.CacheMode;
+import org.hibernate.boot.spi.SessionFactoryOptions;
+import org.hibernate.cache.spi.CacheImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.jpa.HibernateHints;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+@RequiredArgsConstructor
+public class UserPatchRepositoryImpl implements UserPatchRepository {
+
+    private static final String[] USERS_QUERY_SPACES = {"users"};
+
+    private final EntityManager entityManager;
+
+    @Override
+    public Optional<PatchedUser> patch(Long id, User changes, Long expectedVersion) {
+        Map<String, Object> columns = changedColumns(changes);
+        if (columns.isEmpty()) {
+            return Optional.ofNullable(entityManager.find(User.class, id))
+                    .filter(user -> expectedVersion == null || expectedVersion.equals(user.getVersion()))
+                    .map(user -> new PatchedUser(user, user.getEmail()));
+        }
+
+        String assignments = columns.keySet().stream()
+                .map(column -> column + " = :" + column)
+                .collect(Collectors.joining(", "));
+        String versionCheck = expectedVersion != null ? " and version = :version" : "";
+        // The locked sub-select reads the row as it is right before the update, so the previous email
+        // comes back from the same statement.
+        Query query = entityManager.createNativeQuery("update users u set " + assignments +
+                ", version = u.version + 1" +
+                " from (select id, email from users where id = :id" + versionCheck + " for update) previous" +
+                " where u.id = previous.id" +
+                " returning u.*, previous.email as previous_email", User.PATCHED_USER_MAPPING);
+        // Keep the uncommitted row out of the second-level cache; see invalidateCaches.
+        query.setHint(HibernateHints.HINT_CACHE_MODE, CacheMode.IGNORE);
+        columns.forEach(query::setParameter);
+        query.setParameter("id", id);
+        if (expectedVersion != null) {
+            query.setParameter("version", expectedVersion);
+        }
+
+        invalidateCaches(id);
+        @SuppressWarnings("unchecked")
+        List<Object[]> updated = query.getResultList();
+        return updated.stream()
+                .findFirst()
+                .map(row -> new PatchedUser((User) row[0], (String) row[1]));
+    }
+
+    @Override
+    public Optional<String> delete(Long id, Long expectedVersion) {
+        String versionCheck = expectedVersion != null ? " and version = :version" : "";
+        Query query = entityManager.createNativeQuery("delete from users where id = :id" + versionCheck +
+                " returning email", String.class);
+        query.setHint(HibernateHints.HINT_CACHE_MODE, CacheMode.IGNORE);
+        query.setParameter("id", id);
+        if (expectedVersion != null) {
+            query.setParameter("version", expectedVersion);
+        }
+
+        invalidateCaches(id);
+        @SuppressWarnings("unchecked")
+        List<String> deleted = query.getResultList();
+        return deleted.stream().findFirst();
+    }
+
+    /**
+     * Hibernate treats the native UPDATE ... RETURNING and DELETE ... RETURNING as selects, so it neither evicts the cached entity
+     * nor marks cached queries over the users table as stale. Do what it does for its own bulk updates:
+     * hold off the query cache for the table until the transaction completes, then evict the entity and
+     * bump the table's timestamp, whether the transaction committed or not.
+     */
+    private void invalidateCaches(Long id) {
+        SessionImplementor session = entityManager.unwrap(SessionImplementor.class);
+        SessionFactoryOptions options = session.getFactory().getSessionFactoryOptions();
+        boolean entityCacheEnabled = options.isSecondLevelCacheEnabled();
+        boolean queryCacheEnabled = options.isQueryCacheEnabled();
+        if (!entityCacheEnabled && !queryCacheEnabled) {
+            return;
+        }
+
+        CacheImplementor cache = session.getFactory().getCache();
+        if (queryCacheEnabled) {
+            cache.getTimestampsCache().preInvalidate(USERS_QUERY_SPACES, session);
+        }
+        session.getActionQueue().registerProcess((success, completedSession) -> {
+            if (entityCacheEnabled) {
+                cache.evictEntityData(User.class, id);
+            }
+            if (queryCacheEnabled) {
+                cache.getTimestampsCache().invalidate(USERS_QUERY_SPACES, completedSession);
+            }
+        });
+    }
+
+    private Map<String, Object> changedColumns(User changes) {
+        Map<String, Object> columns = new LinkedHashMap<>();
+        putIfPresent(columns, "email", changes.getEmail());
+        putIfPresent(columns, "first_name", changes.getFirstName());
+        putIfPresent(columns, "surname", changes.getSurname());
+        putIfPresent(columns, "birth_date", changes.getBirthDate());
+        putIfPresent(columns, "address", changes.getAddress());
+        putIfPresent(columns, "phone_number", changes.getPhoneNumber());
+        return columns;
+    }
+
+    private void putIfPresent(Map<String, Object> columns, String column, Object value) {
+        if (value != null) {
+            columns.put(column, value);
+        }
+    }
+}
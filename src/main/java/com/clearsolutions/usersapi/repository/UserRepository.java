@@ -1,15 +1,115 @@
 package com.clearsolutions.usersapi.repository;
 
+import com.clearsolutions.usersapi.dto.UserDto;
 import com.clearsolutions.usersapi.entity.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
-    List<User> findByBirthDateBetween(LocalDate from, LocalDate to);
-    Optional<User> findByEmail(String email);
+public interface UserRepository extends JpaRepository<User, Long>, UserPatchRepository {
+
+    String USER_DTO_SELECT = "select new com.clearsolutions.usersapi.dto.UserDto(" +
+            "u.id, u.email, u.firstName, u.surname, u.birthDate, u.address, u.phoneNumber, u.version) from User u ";
+
+    @Transactional(readOnly = true)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = User.QUERY_CACHE_REGION)
+    })
+    @Query(USER_DTO_SELECT +
+            "where u.birthDate between :from and :to " +
+            "order by u.birthDate, u.id")
+    List<UserDto> findDtosByBirthDateBetween(@Param("from") LocalDate from,
+                                             @Param("to") LocalDate to,
+                                             Pageable pageable);
+
+    @Transactional(readOnly = true)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = User.QUERY_CACHE_REGION)
+    })
+    @Query(USER_DTO_SELECT +
+            "where u.birthDate between :from and :to " +
+            "and u.birthDate >= :lastBirthDate " +
+            "and (u.birthDate > :lastBirthDate or u.id > :lastId) " +
+            "order by u.birthDate, u.id")
+    List<UserDto> findDtosByBirthDateBetweenAfter(@Param("from") LocalDate from,
+                                                  @Param("to") LocalDate to,
+                                                  @Param("lastBirthDate") LocalDate lastBirthDate,
+                                                  @Param("lastId") Long lastId,
+                                                  Pageable pageable);
+
+    @Transactional(readOnly = true)
+    @Query(USER_DTO_SELECT + "where u.id in :ids")
+    List<UserDto> findDtosByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Transactional(readOnly = true)
+    @Query(USER_DTO_SELECT +
+            "where lower(u.firstName) like :prefix escape '\\' " +
+            "or lower(u.surname) like :prefix escape '\\' " +
+            "or lower(u.email) like :prefix escape '\\' " +
+            "order by u.id")
+    List<UserDto> findDtosByPrefix(@Param("prefix") String prefix, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(USER_DTO_SELECT +
+            "where u.birthDate between :from and :to " +
+            "order by u.birthDate, u.id")
+    Stream<UserDto> streamDtosByBirthDateBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(USER_DTO_SELECT + "order by u.birthDate, u.id")
+    Stream<UserDto> streamAllDtos();
+
+    @Transactional(readOnly = true)
+    @Query(value = "select to_char(birth_date, 'YYYY') as bucket, count(*) as count from users " +
+            "where birth_date between :from and :to " +
+            "group by 1 order by 1", nativeQuery = true)
+    List<BucketCount> countByBirthYear(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Transactional(readOnly = true)
+    @Query(value = "select to_char(birth_date, 'YYYY-MM') as bucket, count(*) as count from users " +
+            "where birth_date between :from and :to " +
+            "group by 1 order by 1", nativeQuery = true)
+    List<BucketCount> countByBirthMonth(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Transactional(readOnly = true)
+    @Query(value = "select concat(band, '-', band + :width - 1) as bucket, count(*) as count from (" +
+            "select cast(floor(date_part('year', age(:today, birth_date)) / :width) * :width as integer) as band " +
+            "from users where birth_date between :from and :to) bands " +
+            "group by band order by band", nativeQuery = true)
+    List<BucketCount> countByAgeBand(@Param("from") LocalDate from,
+                                     @Param("to") LocalDate to,
+                                     @Param("today") LocalDate today,
+                                     @Param("width") int width);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = User.QUERY_CACHE_REGION)
+    })
+    @Query("select u from User u where lower(u.email) = lower(:email)")
+    Optional<User> findByEmail(@Param("email") String email);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select u.email from User u")
+    Stream<String> streamAllEmails();
+
+    /**
+     * Returns which of the given lowercased emails are taken, compared case-insensitively and in lower case.
+     */
+    @Query("select lower(u.email) from User u where lower(u.email) in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
 }
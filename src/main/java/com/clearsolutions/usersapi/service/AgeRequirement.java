@@ -0,0 +1,31 @@
+package com.clearsolutions.usersapi.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+@Component
+public class AgeRequirement {
+
+    private final long requiredAge;
+
+    public AgeRequirement(@Value("${validation.required-age}") long requiredAge) {
+        this.requiredAge = requiredAge;
+    }
+
+    public boolean isSatisfiedBy(LocalDate dateOfBirth) {
+        LocalDate requiredAgeAgo = LocalDate.now().minusYears(requiredAge);
+        return !dateOfBirth.isAfter(requiredAgeAgo);
+    }
+
+    public void check(LocalDate dateOfBirth) {
+        if (!isSatisfiedBy(dateOfBirth)) {
+            throw new IllegalArgumentException(violationMessage());
+        }
+    }
+
+    public String violationMessage() {
+        return "User must be at least " + requiredAge + " years old.";
+    }
+}
@@ -0,0 +1,249 @@
+package com.clearsolutions.usersapi.service;
+
+import com.clearsolutions.usersapi.dto.ChangeCursor;
+import com.clearsolutions.usersapi.dto.UserChangeDto;
+import com.clearsolutions.usersapi.entity.UserChange;
+import com.clearsolutions.usersapi.exceptions.ResourceGoneException;
+import com.clearsolutions.usersapi.repository.PurgeWatermark;
+import com.clearsolutions.usersapi.repository.UserChangeRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Streams the {@code user_changes} outbox to server-sent event subscribers. Each subscription polls
+ * the outbox from its own cursor on a shared scheduler and sends the cursor as the event id, so a
+ * client reconnecting with {@code Last-Event-ID} resumes exactly after the last change it received.
+ * A cursor that points before the newest purged change is rejected with 410, since changes after it
+ * have been purged; the client has to reload its state and subscribe afresh. The purge records that
+ * position apart from the outbox, so this holds even after a purge has emptied it.
+ * <p>
+ * The scheduler only triggers polls. Each poll, and the sends it makes, runs on a virtual thread of its
+ * own, so a client that reads slowly holds up its own subscription and nobody else's.
+ */
+@Slf4j
+@Component
+public class UserChangeFeed {
+
+    public static final String EXPIRED_CURSOR_MESSAGE =
+            "Changes after this cursor are no longer retained, reload and subscribe without a cursor.";
+
+    private final UserChangeRepository userChangeRepository;
+
+    private final ScheduledExecutorService scheduler;
+
+    private final ExecutorService sender = Executors.newThreadPerTaskExecutor(Thread.ofVirtual()
+            .name("users-change-feed-send-", 0)
+            .factory());
+
+    private final Duration pollInterval;
+
+    private final int batchSize;
+
+    private final Duration timeout;
+
+    private final Duration heartbeatInterval;
+
+    private final Duration retention;
+
+    private final AtomicInteger subscribers = new AtomicInteger();
+
+    private final Counter sent;
+
+    public UserChangeFeed(UserChangeRepository userChangeRepository,
+                          MeterRegistry meterRegistry,
+                          @Value("${users.change-feed.poll-interval:1s}") Duration pollInterval,
+                          @Value("${users.change-feed.batch-size:500}") int batchSize,
+                          @Value("${users.change-feed.timeout:30m}") Duration timeout,
+                          @Value("${users.change-feed.heartbeat-interval:15s}") Duration heartbeatInterval,
+                          @Value("${users.change-feed.retention:7d}") Duration retention,
+                          @Value("${users.change-feed.poller-threads:2}") int pollerThreads) {
+        this.userChangeRepository = userChangeRepository;
+        this.pollInterval = pollInterval;
+        this.batchSize = batchSize;
+        this.timeout = timeout;
+        this.heartbeatInterval = heartbeatInterval;
+        this.retention = retention;
+        this.scheduler = Executors.newScheduledThreadPool(pollerThreads, Thread.ofPlatform()
+                .name("users-change-feed-", 0)
+                .daemon()
+                .factory());
+
+        Gauge.builder("users.changes.subscribers", subscribers, AtomicInteger::get)
+                .description("Open change feed subscriptions")
+                .register(meterRegistry);
+        this.sent = Counter.builder("users.changes.sent")
+                .description("Change events sent to change feed subscribers")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void schedulePurge() {
+        scheduler.scheduleWithFixedDelay(this::purgeQuietly, 0, 1, TimeUnit.HOURS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        sender.shutdownNow();
+    }
+
+    /**
+     * Opens a subscription that starts after {@code after}, or at the current end of the feed when it
+     * is null.
+     *
+     * @throws ResourceGoneException if changes after {@code after} may already have been purged
+     */
+    public SseEmitter subscribe(ChangeCursor after) {
+        if (after != null) {
+            PurgeWatermark purged = userChangeRepository.findPurgeWatermark();
+            if (after.isBefore(new ChangeCursor(purged.getTxId(), purged.getId()))) {
+                throw new ResourceGoneException(EXPIRED_CURSOR_MESSAGE);
+            }
+        }
+        ChangeCursor start = after != null
+                ? after
+                : userChangeRepository.findLatestVisible().map(UserChangeFeed::cursorAfter).orElse(ChangeCursor.START);
+
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Subscription subscription = new Subscription(emitter, start);
+        subscription.future = scheduler.scheduleWithFixedDelay(subscription::trigger,
+                0, pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+        subscribers.incrementAndGet();
+
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> subscription.cancel());
+        return emitter;
+    }
+
+    public long purge() {
+        return userChangeRepository.purgeChangedBefore(Instant.now().minus(retention));
+    }
+
+    private void purgeQuietly() {
+        try {
+            long purged = purge();
+            if (purged > 0) {
+                log.info("Purged {} user changes older than {}", purged, retention);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to purge old user changes", e);
+        }
+    }
+
+    private static ChangeCursor cursorAfter(UserChange change) {
+        return new ChangeCursor(change.getTxId(), change.getId());
+    }
+
+    private static UserChangeDto toDto(UserChange change) {
+        return new UserChangeDto(change.getOperation(), change.getUserId(), change.getChangedAt(), change.getPayload());
+    }
+
+    private final class Subscription {
+
+        private final SseEmitter emitter;
+
+        private final AtomicBoolean polling = new AtomicBoolean();
+
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+
+        private ChangeCursor cursor;
+
+        private long lastSentNanos = System.nanoTime();
+
+        private volatile ScheduledFuture<?> future;
+
+        Subscription(SseEmitter emitter, ChangeCursor cursor) {
+            this.emitter = emitter;
+            this.cursor = cursor;
+        }
+
+        /**
+         * Hands a poll to the sender unless the previous one is still running. Cursor and timestamps are
+         * only touched by the poll itself, which never overlaps with another.
+         */
+        void trigger() {
+            if (cancelled.get() || !polling.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                sender.execute(() -> {
+                    try {
+                        poll();
+                    } finally {
+                        polling.set(false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                polling.set(false);
+            }
+        }
+
+        private void poll() {
+            if (cancelled.get()) {
+                return;
+            }
+            try {
+                List<UserChange> changes;
+                do {
+                    changes = userChangeRepository.findVisibleAfter(cursor.getTxId(), cursor.getId(), batchSize);
+                    for (UserChange change : changes) {
+                        ChangeCursor next = cursorAfter(change);
+                        emitter.send(SseEmitter.event()
+                                .id(next.encode())
+                                .name(change.getOperation().name().toLowerCase(Locale.ROOT))
+                                .data(toDto(change), MediaType.APPLICATION_JSON));
+                        cursor = next;
+                        sent.increment();
+                        lastSentNanos = System.nanoTime();
+                    }
+                } while (changes.size() == batchSize);
+
+                if (System.nanoTime() - lastSentNanos >= heartbeatInterval.toNanos()) {
+                    emitter.send(SseEmitter.event().comment("heartbeat"));
+                    lastSentNanos = System.nanoTime();
+                }
+            } catch (IOException | IllegalStateException e) {
+                cancel();
+            } catch (RuntimeException e) {
+                log.warn("Change feed subscription failed", e);
+                cancel();
+                emitter.completeWithError(e);
+            }
+        }
+
+        void cancel() {
+            if (!cancelled.compareAndSet(false, true)) {
+                return;
+            }
+            subscribers.decrementAndGet();
+            ScheduledFuture<?> current = future;
+            if (current != null) {
+                current.cancel(false);
+            }
+        }
+    }
+}
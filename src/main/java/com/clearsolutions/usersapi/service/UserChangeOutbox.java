@@ -0,0 +1,64 @@
+package com.clearsolutions.usersapi.service;
+
+import com.clearsolutions.usersapi.dto.ChangeOperation;
+import com.clearsolutions.usersapi.dto.UserDto;
+import com.clearsolutions.usersapi.entity.UserChange;
+import com.clearsolutions.usersapi.exceptions.ResourceMappingException;
+import com.clearsolutions.usersapi.repository.UserChangeRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Appends change records to {@code user_changes} inside the caller's transaction, so a change is
+ * published exactly when the write it describes commits.
+ */
+@Component
+@RequiredArgsConstructor
+public class UserChangeOutbox {
+
+    private final UserChangeRepository userChangeRepository;
+
+    private final ObjectMapper objectMapper;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordUpserted(ChangeOperation operation, UserDto user) {
+        userChangeRepository.save(change(operation, user.getId(), payload(user)));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCreated(List<UserDto> users) {
+        userChangeRepository.saveAll(users.stream()
+                .map(user -> change(ChangeOperation.CREATED, user.getId(), payload(user)))
+                .collect(Collectors.toList()));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDeleted(Long id) {
+        userChangeRepository.save(change(ChangeOperation.DELETED, id, null));
+    }
+
+    private UserChange change(ChangeOperation operation, Long userId, String payload) {
+        return UserChange.builder()
+                .userId(userId)
+                .operation(operation)
+                .changedAt(Instant.now())
+                .payload(payload)
+                .build();
+    }
+
+    private String payload(UserDto user) {
+        try {
+            return objectMapper.writeValueAsString(user);
+        } catch (JsonProcessingException e) {
+            throw new ResourceMappingException("Failed to serialize user change: " + e.getMessage());
+        }
+    }
+}
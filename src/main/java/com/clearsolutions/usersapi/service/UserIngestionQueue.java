@@ -0,0 +1,213 @@
+package com.clearsolutions.usersapi.service;
+
+import com.clearsolutions.usersapi.dto.BatchItemResult;
+import com.clearsolutions.usersapi.dto.IngestionTicket;
+import com.clearsolutions.usersapi.dto.UserDto;
+import com.clearsolutions.usersapi.exceptions.ExceptionBody;
+import com.clearsolutions.usersapi.exceptions.ServiceUnavailableException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Write-behind queue for user creation. Submissions are acknowledged with a ticket as soon as they are
+ * queued; a single writer thread drains whatever has accumulated, up to the batch size, into one
+ * {@link UserService#createAll} transaction and records the outcome of every item on its ticket.
+ * <p>
+ * On shutdown new submissions are rejected and the writer gets the shutdown timeout to drain the queue.
+ * Whatever is still queued after that is marked failed, so no ticket stays queued forever. Submissions
+ * check and enqueue under a shared lock that shutdown takes exclusively, so none can land after the final
+ * drain. The writer is a daemon thread, so a batch that is still being written does not hold up JVM exit.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "users.async-create.enabled", havingValue = "true")
+public class UserIngestionQueue {
+
+    public static final String SHUTTING_DOWN_MESSAGE = "Ingestion queue is shutting down, retry later";
+
+    public static final String NOT_WRITTEN_MESSAGE = "Server shut down before the user was written, submit it again";
+
+    private final UserService userService;
+
+    private final BlockingQueue<Submission> queue;
+
+    private final Cache<UUID, IngestionTicket> tickets;
+
+    private final int batchSize;
+
+    private final Duration pollInterval;
+
+    private final Duration shutdownTimeout;
+
+    private final Timer flushTimer;
+
+    private final Counter rejected;
+
+    private final ReadWriteLock stopLock = new ReentrantReadWriteLock();
+
+    private volatile boolean running;
+
+    private volatile boolean stopping;
+
+    private Thread writer;
+
+    public UserIngestionQueue(UserService userService,
+                              MeterRegistry meterRegistry,
+                              @Value("${users.async-create.queue-capacity:10000}") int queueCapacity,
+                              @Value("${users.async-create.batch-size:500}") int batchSize,
+                              @Value("${users.async-create.poll-interval:50ms}") Duration pollInterval,
+                              @Value("${users.async-create.ticket-ttl:10m}") Duration ticketTtl,
+                              @Value("${users.async-create.shutdown-timeout:30s}") Duration shutdownTimeout) {
+        this.userService = userService;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.tickets = Caffeine.newBuilder()
+                .expireAfterWrite(ticketTtl)
+                .build();
+        this.batchSize = batchSize;
+        this.pollInterval = pollInterval;
+        this.shutdownTimeout = shutdownTimeout;
+
+        Gauge.builder("users.ingestion.queue.depth", queue, BlockingQueue::size)
+                .description("Users waiting to be written by the ingestion queue")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("users.ingestion.flush")
+                .description("Time to write one batch from the ingestion queue")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.rejected = Counter.builder("users.ingestion.rejected")
+                .description("Submissions rejected because the ingestion queue was full")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (running || stopping) {
+            return;
+        }
+        running = true;
+        writer = Thread.ofPlatform()
+                .name("users-ingestion-writer")
+                .daemon()
+                .start(this::drain);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        stopLock.writeLock().lock();
+        try {
+            stopping = true;
+        } finally {
+            stopLock.writeLock().unlock();
+        }
+        running = false;
+        Thread current = writer;
+        if (current != null) {
+            current.join(shutdownTimeout.toMillis());
+        }
+
+        List<Submission> leftovers = new ArrayList<>();
+        queue.drainTo(leftovers);
+        if (!leftovers.isEmpty()) {
+            log.warn("Ingestion queue stopped with {} users not written", leftovers.size());
+            for (Submission submission : leftovers) {
+                tickets.put(submission.id(), IngestionTicket.completed(submission.id(),
+                        BatchItemResult.failed(0, new ExceptionBody(NOT_WRITTEN_MESSAGE))));
+            }
+        }
+    }
+
+    public IngestionTicket submit(UserDto userDto) {
+        stopLock.readLock().lock();
+        try {
+            if (stopping) {
+                throw new ServiceUnavailableException(SHUTTING_DOWN_MESSAGE);
+            }
+            UUID id = UUID.randomUUID();
+            IngestionTicket ticket = IngestionTicket.queued(id);
+            tickets.put(id, ticket);
+            if (!queue.offer(new Submission(id, userDto))) {
+                tickets.invalidate(id);
+                rejected.increment();
+                throw new ServiceUnavailableException("Ingestion queue is full, retry later");
+            }
+            return ticket;
+        } finally {
+            stopLock.readLock().unlock();
+        }
+    }
+
+    public Optional<IngestionTicket> find(UUID id) {
+        return Optional.ofNullable(tickets.getIfPresent(id));
+    }
+
+    void drain() {
+        List<Submission> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Submission first = queue.poll(pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Ingestion writer failed to flush {} users", batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Submission> batch) {
+        List<BatchItemResult> results = flushTimer.record(() -> write(batch));
+        for (int i = 0; i < batch.size(); i++) {
+            UUID id = batch.get(i).id();
+            tickets.put(id, IngestionTicket.completed(id, results.get(i)));
+        }
+    }
+
+    private List<BatchItemResult> write(List<Submission> batch) {
+        try {
+            return userService.createAll(batch.stream()
+                    .map(Submission::user)
+                    .collect(Collectors.toList()));
+        } catch (RuntimeException e) {
+            log.error("Ingestion writer failed to create {} users", batch.size(), e);
+            List<BatchItemResult> results = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                results.add(BatchItemResult.failed(i, new ExceptionBody("Internal error: " + e.getMessage())));
+            }
+            return results;
+        }
+    }
+
+    private record Submission(UUID id, UserDto user) {
+    }
+}
@@ -1,65 +1,222 @@
 package com.clearsolutions.usersapi.service;
 
+import com.clearsolutions.usersapi.dto.BatchItemResult;
+import com.clearsolutions.usersapi.dto.BucketCountDto;
+import com.clearsolutions.usersapi.dto.ChangeOperation;
+import com.clearsolutions.usersapi.dto.CursorPage;
+import com.clearsolutions.usersapi.dto.StatsBucket;
+import com.clearsolutions.usersapi.dto.UserCursor;
 import com.clearsolutions.usersapi.dto.UserDto;
+import com.clearsolutions.usersapi.dto.UserStatsDto;
+import com.clearsolutions.usersapi.dto.validation.OnCreate;
 import com.clearsolutions.usersapi.entity.User;
+import com.clearsolutions.usersapi.exceptions.ExceptionBody;
+import com.clearsolutions.usersapi.exceptions.PreconditionFailedException;
 import com.clearsolutions.usersapi.exceptions.ResourceNotFoundException;
 import com.clearsolutions.usersapi.exceptions.UserEmailAlreadyInUseException;
+import com.clearsolutions.usersapi.index.EmailIndex;
+import com.clearsolutions.usersapi.index.UserRangeIndex;
+import com.clearsolutions.usersapi.index.UserSearchIndex;
 import com.clearsolutions.usersapi.mapper.UserMapper;
+import com.clearsolutions.usersapi.repository.BucketCount;
+import com.clearsolutions.usersapi.repository.PatchedUser;
 import com.clearsolutions.usersapi.repository.UserRepository;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Value;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class UserService {
 
+    public static final String USERS_CACHE = "users";
+
+    public static final String VERSION_MISMATCH_MESSAGE = "User was modified by another request";
+
+    private static final String SERVICE_TIMER = "users.service";
+
+    private static final int AGE_BAND_WIDTH = 10;
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    private static final int SEARCH_INDEX_ROUNDS = 3;
+
     private final UserRepository userRepository;
 
     private final UserMapper userMapper;
 
-    @Value("${validation.required-age}")
-    private long requiredAge;
+    private final AgeRequirement ageRequirement;
+
+    private final Validator validator;
+
+    private final EmailIndex emailIndex;
+
+    private final UserRangeIndex userRangeIndex;
+
+    private final UserSearchIndex userSearchIndex;
+
+    private final UserChangeOutbox userChangeOutbox;
+
+    private final MeterRegistry meterRegistry;
+
+    private final CacheManager cacheManager;
+
+    private final TransactionTemplate transactionTemplate;
 
     @Transactional
+    @Timed(value = SERVICE_TIMER, extraTags = {"operation", "create"}, histogram = true)
     public UserDto create(User user) {
-        if (userRepository.findByEmail(user.getEmail()).isPresent()) {
+        if (emailIndex.mightContain(user.getEmail()) && userRepository.findByEmail(user.getEmail()).isPresent()) {
             throw new UserEmailAlreadyInUseException("Email already in use");
         }
 
-        LocalDate dateOfBirth = user.getBirthDate();
-        LocalDate eighteenYearsAgo = LocalDate.now().minusYears(requiredAge);
+        ageRequirement.check(user.getBirthDate());
+
+        User createdUser = saveAndFlush(user);
+        emailIndex.add(createdUser.getEmail());
+
+        UserDto createdUserDto = userMapper.toDto(createdUser);
+        userChangeOutbox.recordUpserted(ChangeOperation.CREATED, createdUserDto);
+        userRangeIndex.upsertAfterCommit(createdUserDto);
+        userSearchIndex.upsertAfterCommit(createdUserDto);
+        return createdUserDto;
+    }
+
+    /**
+     * Creates every valid user and reports the outcome per item. The batch is inserted in one transaction.
+     * If an email was taken concurrently, each user is retried in its own transaction, so only the
+     * conflicting items fail. Call it outside a transaction, so that a failed batch does not roll back the
+     * caller's work.
+     */
+    @Timed(value = SERVICE_TIMER, extraTags = {"operation", "createAll"}, histogram = true)
+    public List<BatchItemResult> createAll(List<UserDto> userDtos) {
+        BatchItemResult[] results = new BatchItemResult[userDtos.size()];
+        Map<String, Integer> candidateIndexByEmail = new LinkedHashMap<>();
 
+        for (int i = 0; i < userDtos.size(); i++) {
+            UserDto userDto = userDtos.get(i);
+            if (userDto == null) {
+                results[i] = BatchItemResult.failed(i, new ExceptionBody("User must be not null."));
+                continue;
+            }
+            Set<ConstraintViolation<UserDto>> violations = validator.validate(userDto, OnCreate.class);
+            if (!violations.isEmpty()) {
+                results[i] = BatchItemResult.failed(i, validationError(violations));
+            } else if (!ageRequirement.isSatisfiedBy(userDto.getBirthDate())) {
+                results[i] = BatchItemResult.failed(i, new ExceptionBody(ageRequirement.violationMessage()));
+            } else if (candidateIndexByEmail.putIfAbsent(EmailIndex.normalize(userDto.getEmail()), i) != null) {
+                results[i] = BatchItemResult.failed(i, new ExceptionBody("Email already in use"));
+            }
+        }
+
+        List<String> possiblyTakenEmails = candidateIndexByEmail.keySet().stream()
+                .filter(emailIndex::mightContain)
+                .collect(Collectors.toList());
+        if (!possiblyTakenEmails.isEmpty()) {
+            for (String existingEmail : userRepository.findExistingEmails(possiblyTakenEmails)) {
+                int index = candidateIndexByEmail.remove(existingEmail);
+                results[index] = BatchItemResult.failed(index, new ExceptionBody("Email already in use"));
+            }
+        }
 
-        if (dateOfBirth.isAfter(eighteenYearsAgo)) {
-            throw new IllegalArgumentException("User must be at least " + requiredAge + " years old.");
+        List<Integer> indexes = new ArrayList<>(candidateIndexByEmail.values());
+        try {
+            transactionTemplate.executeWithoutResult(status -> insertAll(userDtos, indexes, results));
+        } catch (DataIntegrityViolationException e) {
+            if (!isEmailConflict(e)) {
+                throw e;
+            }
+            for (int index : indexes) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> insertAll(userDtos, List.of(index), results));
+                } catch (DataIntegrityViolationException itemException) {
+                    if (!isEmailConflict(itemException)) {
+                        throw itemException;
+                    }
+                    results[index] = BatchItemResult.failed(index, new ExceptionBody("Email already in use"));
+                }
+            }
         }
 
-        User createdUser = userRepository.save(user);
+        return Arrays.asList(results);
+    }
+
+    private void insertAll(List<UserDto> userDtos, List<Integer> indexes, BatchItemResult[] results) {
+        List<User> users = indexes.stream()
+                .map(index -> userMapper.toEntity(userDtos.get(index)).setId(null))
+                .collect(Collectors.toList());
+        List<User> createdUsers = userRepository.saveAll(users);
+        userRepository.flush();
+        createdUsers.forEach(createdUser -> emailIndex.add(createdUser.getEmail()));
 
-        return userMapper.toDto(createdUser);
+        List<UserDto> createdUserDtos = new ArrayList<>(indexes.size());
+        for (int i = 0; i < indexes.size(); i++) {
+            int index = indexes.get(i);
+            UserDto createdUserDto = userMapper.toDto(createdUsers.get(i));
+            userRangeIndex.upsertAfterCommit(createdUserDto);
+            userSearchIndex.upsertAfterCommit(createdUserDto);
+            results[index] = BatchItemResult.created(index, createdUserDto);
+            createdUserDtos.add(createdUserDto);
+        }
+        if (!createdUserDtos.isEmpty()) {
+            userChangeOutbox.recordCreated(createdUserDtos);
+        }
     }
 
+    // Not read-only: the result is cached, and a read-only transaction may see a lagging replica.
     @Transactional
-    public UserDto update(Long id, User user) {
+    @Cacheable(cacheNames = USERS_CACHE, key = "#id")
+    @Timed(value = SERVICE_TIMER, extraTags = {"operation", "findById"}, histogram = true)
+    public UserDto findById(Long id) {
+        return userRepository.findById(id)
+                .map(userMapper::toDto)
+                .orElseThrow(() -> new ResourceNotFoundException("User with this id not found"));
+    }
+
+    @Transactional
+    @Timed(value = SERVICE_TIMER, extraTags = {"operation", "update"}, histogram = true)
+    public UserDto update(Long id, User user, Long expectedVersion) {
         Optional<User> optionalUser = userRepository.findById(id);
         if (!optionalUser.isPresent()) {
             throw new ResourceNotFoundException("User with this id not found");
         }
-
-        LocalDate dateOfBirth = user.getBirthDate();
-        LocalDate eighteenYearsAgo = LocalDate.now().minusYears(requiredAge);
-
-        if (dateOfBirth.isAfter(eighteenYearsAgo)) {
-            throw new IllegalArgumentException("User must be at least " + requiredAge + " years old.");
+        if (expectedVersion != null && !expectedVersion.equals(optionalUser.get().getVersion())) {
+            throw new PreconditionFailedException(VERSION_MISMATCH_MESSAGE);
         }
 
+        ageRequirement.check(user.getBirthDate());
+
         User existinUser = optionalUser.get();
+        String previousEmail = existinUser.getEmail();
 
         existinUser.setEmail(user.getEmail())
                 .setFirstName(user.getFirstName())
@@ -68,54 +225,237 @@ public class UserService {
                 .setAddress(user.getAddress())
                 .setPhoneNumber(user.getPhoneNumber());
 
-        User savedUser = userRepository.save(existinUser);
-        return userMapper.toDto(savedUser);
+        User savedUser = saveAndFlush(existinUser);
+        onEmailChanged(previousEmail, savedUser.getEmail());
+        evictAfterCommit(id);
+
+        UserDto savedUserDto = userMapper.toDto(savedUser);
+        userChangeOutbox.recordUpserted(ChangeOperation.UPDATED, savedUserDto);
+        userRangeIndex.upsertAfterCommit(savedUserDto);
+        userSearchIndex.upsertAfterCommit(savedUserDto);
+        return savedUserDto;
 
     }
 
     @Transactional
-    public UserDto particularUpdate(Long id, User user) {
-        Optional<User> optionalUser = userRepository.findById(id);
-        if (!optionalUser.isPresent()) {
-            throw new ResourceNotFoundException("User with this id not found");
-        }
-        User existinUser = optionalUser.get();
-
+    @Timed(value = SERVICE_TIMER, extraTags = {"operation", "particularUpdate"}, histogram = true)
+    public UserDto particularUpdate(Long id, User user, Long expectedVersion) {
         LocalDate dateOfBirth = user.getBirthDate();
         if (dateOfBirth != null) {
-            LocalDate eighteenYearsAgo = LocalDate.now().minusYears(requiredAge);
+            ageRequirement.check(dateOfBirth);
+        }
 
-            if (dateOfBirth.isAfter(eighteenYearsAgo)) {
-                throw new IllegalArgumentException("User must be at least " + requiredAge + " years old.");
-            } else {
-                existinUser.setBirthDate(dateOfBirth);
-            }
+        Optional<PatchedUser> patchedUser;
+        try {
+            patchedUser = userRepository.patch(id, user, expectedVersion);
+        } catch (DataIntegrityViolationException e) {
+            throw emailConflictOr(e);
         }
+        PatchedUser patched = patchedUser.orElseThrow(() -> notFoundOrModified(id, expectedVersion));
+        User savedUser = patched.user();
+        evictAfterCommit(id);
+        onEmailChanged(patched.previousEmail(), savedUser.getEmail());
 
-        existinUser.setEmail(user.getEmail() != null ? user.getEmail() : existinUser.getEmail())
-                .setFirstName(user.getFirstName() != null ? user.getFirstName() : existinUser.getFirstName())
-                .setSurname(user.getSurname() != null ? user.getSurname() : existinUser.getSurname())
-                .setAddress(user.getAddress() != null ? user.getAddress() : existinUser.getAddress())
-                .setPhoneNumber(user.getPhoneNumber() != null ? user.getPhoneNumber() : existinUser.getPhoneNumber());
+        UserDto savedUserDto = userMapper.toDto(savedUser);
+        userChangeOutbox.recordUpserted(ChangeOperation.UPDATED, savedUserDto);
+        userRangeIndex.upsertAfterCommit(savedUserDto);
+        userSearchIndex.upsertAfterCommit(savedUserDto);
+        return savedUserDto;
+    }
+
+    @Transactional
+    @Timed(value = SERVICE_TIMER, extraTags = {"operation", "delete"}, histogram = true)
+    public void delete(Long id, Long expectedVersion) {
+        String email = userRepository.delete(id, expectedVersion)
+                .orElseThrow(() -> notFoundOrModified(id, expectedVersion));
+        evictAfterCommit(id);
+        emailIndex.removeAfterCommit(email);
+        userChangeOutbox.recordDeleted(id);
+        userRangeIndex.removeAfterCommit(id);
+        userSearchIndex.removeAfterCommit(id);
+    }
 
+    @Timed(value = SERVICE_TIMER, extraTags = {"operation", "findByDateOfBirthBetween"}, histogram = true)
+    public CursorPage<UserDto> findByDateOfBirthBetween(LocalDate from, LocalDate to, UserCursor cursor, int limit) {
+        boolean indexed = userRangeIndex.isReady();
+        List<UserDto> users = indexed
+                ? findInRangeIndex(from, to, cursor, limit + 1)
+                : findInDatabase(from, to, cursor, limit + 1);
+        recordRangeResultSize(indexed, users.size());
 
-        User savedUser = userRepository.save(existinUser);
-        return userMapper.toDto(savedUser);
+        boolean hasNext = users.size() > limit;
+        List<UserDto> content = hasNext ? users.subList(0, limit) : users;
+        String nextCursor = hasNext ? UserCursor.after(content.get(limit - 1)).encode() : null;
 
+        return new CursorPage<>(content, nextCursor);
     }
 
-    @Transactional
-    public void delete(Long id) {
-        Optional<User> optionalUser = userRepository.findById(id);
-        if (!optionalUser.isPresent()) {
-            throw new ResourceNotFoundException("User with this id not found");
+    @Transactional(readOnly = true)
+    @Timed(value = SERVICE_TIMER, extraTags = {"operation", "exportByDateOfBirthBetween"}, histogram = true)
+    public void exportByDateOfBirthBetween(LocalDate from, LocalDate to, Consumer<UserDto> consumer) {
+        try (Stream<UserDto> users = userRepository.streamDtosByBirthDateBetween(from, to)) {
+            users.forEach(consumer);
         }
-        userRepository.deleteById(id);
     }
 
     @Transactional(readOnly = true)
-    public List<UserDto> findByDateOfBirthBetween(LocalDate from, LocalDate to) {
-        List<User> users = userRepository.findByBirthDateBetween(from, to);
-        return userMapper.toDto(users);
+    @Timed(value = SERVICE_TIMER, extraTags = {"operation", "countByDateOfBirthBetween"}, histogram = true)
+    public UserStatsDto countByDateOfBirthBetween(LocalDate from, LocalDate to, StatsBucket bucket) {
+        List<BucketCount> bucketCounts = switch (bucket) {
+            case YEAR -> userRepository.countByBirthYear(from, to);
+            case MONTH -> userRepository.countByBirthMonth(from, to);
+            case AGE_BAND -> userRepository.countByAgeBand(from, to, LocalDate.now(), AGE_BAND_WIDTH);
+        };
+
+        List<BucketCountDto> counts = bucketCounts.stream()
+                .map(bucketCount -> new BucketCountDto(bucketCount.getBucket(), bucketCount.getCount()))
+                .collect(Collectors.toList());
+        long total = counts.stream().mapToLong(BucketCountDto::getCount).sum();
+
+        return new UserStatsDto(bucket, from, to, total, counts);
+    }
+
+    @Timed(value = SERVICE_TIMER, extraTags = {"operation", "search"}, histogram = true)
+    public List<UserDto> search(String query, int limit) {
+        if (!userSearchIndex.isReady()) {
+            return searchInDatabase(query, limit);
+        }
+
+        // Hits are re-checked against the database, so stale ones drop out; fetch more ids until the page
+        // is full, and fall back to the database if the index keeps coming up short.
+        List<UserDto> result = new ArrayList<>(limit);
+        Set<Long> examined = new HashSet<>();
+        for (int round = 0, fetch = limit * 2; round < SEARCH_INDEX_ROUNDS; round++, fetch *= 2) {
+            List<Long> ids = userSearchIndex.find(query, fetch);
+            List<Long> fresh = ids.stream()
+                    .filter(examined::add)
+                    .collect(Collectors.toList());
+            if (!fresh.isEmpty()) {
+                Map<Long, UserDto> usersById = userRepository.findDtosByIdIn(fresh).stream()
+                        .filter(user -> UserSearchIndex.matches(user, query))
+                        .collect(Collectors.toMap(UserDto::getId, user -> user));
+                for (Long id : fresh) {
+                    UserDto user = usersById.get(id);
+                    if (user != null && result.size() < limit) {
+                        result.add(user);
+                    }
+                }
+            }
+            if (result.size() == limit || ids.size() < fetch) {
+                return result;
+            }
+        }
+        return searchInDatabase(query, limit);
+    }
+
+    private List<UserDto> searchInDatabase(String query, int limit) {
+        return userRepository.findDtosByPrefix(likePrefix(query), PageRequest.of(0, limit));
+    }
+
+    private List<UserDto> findInRangeIndex(LocalDate from, LocalDate to, UserCursor cursor, int max) {
+        List<UserDto> indexed = userRangeIndex.find(from, to, cursor, max);
+        if (!userRangeIndex.isConsistencyCheckEnabled()) {
+            return indexed;
+        }
+        List<UserDto> database = findInDatabase(from, to, cursor, max);
+        userRangeIndex.checkConsistency(indexed, database);
+        return database;
+    }
+
+    private List<UserDto> findInDatabase(LocalDate from, LocalDate to, UserCursor cursor, int max) {
+        Pageable pageable = PageRequest.of(0, max);
+        return cursor == null
+                ? userRepository.findDtosByBirthDateBetween(from, to, pageable)
+                : userRepository.findDtosByBirthDateBetweenAfter(from, to, cursor.getBirthDate(), cursor.getId(), pageable);
+    }
+
+    private static String likePrefix(String query) {
+        StringBuilder prefix = new StringBuilder();
+        for (char c : UserSearchIndex.normalize(query).toCharArray()) {
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+                prefix.append(LIKE_ESCAPE);
+            }
+            prefix.append(c);
+        }
+        return prefix.append('%').toString();
+    }
+
+    private void recordRangeResultSize(boolean indexed, int size) {
+        DistributionSummary.builder("users.range.result.size")
+                .description("Rows fetched for one page of a birth-date range query")
+                .tag("source", indexed ? "index" : "database")
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(size);
+    }
+
+    private RuntimeException notFoundOrModified(Long id, Long expectedVersion) {
+        if (expectedVersion != null && userRepository.existsById(id)) {
+            return new PreconditionFailedException(VERSION_MISMATCH_MESSAGE);
+        }
+        return new ResourceNotFoundException("User with this id not found");
+    }
+
+    private User saveAndFlush(User user) {
+        try {
+            return userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            throw emailConflictOr(e);
+        }
+    }
+
+    /**
+     * Maps a violation of the case-insensitive email index to {@link UserEmailAlreadyInUseException} and
+     * returns any other integrity violation unchanged.
+     */
+    private static RuntimeException emailConflictOr(DataIntegrityViolationException e) {
+        return isEmailConflict(e) ? new UserEmailAlreadyInUseException("Email already in use") : e;
+    }
+
+    private static boolean isEmailConflict(DataIntegrityViolationException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation) {
+                return User.EMAIL_UNIQUE_INDEX.equalsIgnoreCase(violation.getConstraintName());
+            }
+        }
+        return false;
+    }
+
+    private void onEmailChanged(String previousEmail, String currentEmail) {
+        if (!EmailIndex.normalize(previousEmail).equals(EmailIndex.normalize(currentEmail))) {
+            emailIndex.add(currentEmail);
+            emailIndex.removeAfterCommit(previousEmail);
+        }
+    }
+
+    /**
+     * Evicts the cached user once the change is committed. Evicting inside the transaction would let a
+     * concurrent read cache the old row, and its ETag, again before the commit.
+     */
+    private void evictAfterCommit(Long id) {
+        Cache cache = cacheManager.getCache(USERS_CACHE);
+        if (cache == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cache.evict(id);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cache.evict(id);
+            }
+        });
+    }
+
+    private ExceptionBody validationError(Set<ConstraintViolation<UserDto>> violations) {
+        ExceptionBody exceptionBody = new ExceptionBody("Validation failed.");
+        exceptionBody.setErrors(violations.stream()
+                .collect(Collectors.toMap(
+                        violation -> violation.getPropertyPath().toString(),
+                        ConstraintViolation::getMessage,
+                        (first, second) -> first)));
+        return exceptionBody;
     }
 }
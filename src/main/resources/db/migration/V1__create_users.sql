@@ -0,0 +1,39 @@
+-- The increment is users.id.allocation-size (USERS_ID_ALLOCATION_SIZE), which UserIdGenerator and the reactive
+-- allocator use as their block size. Changing it later needs an "alter sequence users_id_seq increment by ...".
+create sequence users_id_seq start with 1 increment by ${users_id_allocation_size};
+
+create table users (
+    id           bigint       not null primary key,
+    email        varchar(255) not null,
+    first_name   varchar(255) not null,
+    surname      varchar(255) not null,
+    birth_date   date         not null,
+    address      varchar(255),
+    phone_number varchar(255),
+    version      bigint       not null
+);
+
+-- Keyset pagination over birth-date ranges: where birth_date between ... order by birth_date, id.
+create index idx_users_birth_date_id on users (birth_date, id);
+
+-- Emails are unique regardless of case. text_pattern_ops also serves the prefix search on lower(email).
+create unique index ux_users_email_lower on users (lower(email) text_pattern_ops);
+
+-- Prefix search: lower(first_name) like 'prefix%' or lower(surname) like 'prefix%'.
+create index idx_users_first_name_lower on users (lower(first_name) text_pattern_ops);
+create index idx_users_surname_lower on users (lower(surname) text_pattern_ops);
+
+-- Matches the fixed allocationSize of UserChange.
+create sequence user_changes_seq start with 1 increment by 50;
+
+create table user_changes (
+    id         bigint                      not null primary key,
+    tx_id      bigint                      not null default cast(cast(pg_current_xact_id() as text) as bigint),
+    user_id    bigint                      not null,
+    operation  varchar(16)                 not null check (operation in ('CREATED', 'UPDATED', 'DELETED')),
+    changed_at timestamp(6) with time zone not null,
+    payload    text
+);
+
+create index idx_user_changes_tx_id_id on user_changes (tx_id, id);
+create index idx_user_changes_changed_at on user_changes (changed_at);
@@ -0,0 +1,9 @@
+-- Highest (tx_id, id) ever purged from user_changes. Kept apart from user_changes so it survives a purge that
+-- empties the outbox; a change feed cursor before it may have missed purged changes.
+create table user_changes_watermark (
+    singleton    boolean not null primary key default true check (singleton),
+    purged_tx_id bigint  not null,
+    purged_id    bigint  not null
+);
+
+insert into user_changes_watermark (singleton, purged_tx_id, purged_id) values (true, 0, 0);
@@ -0,0 +1,5 @@
+-- Optional BRIN index for very large users tables, enabled by adding classpath:db/optional/brin to
+-- USERS_FLYWAY_LOCATIONS. It is a few pages in size instead of the B-tree's gigabytes, but only narrows
+-- scans while the physical row order follows birth_date, e.g. after a bulk load sorted by birth date
+-- or CLUSTER on idx_users_birth_date_id. The B-tree stays in place for randomly ordered inserts.
+create index concurrently if not exists brin_users_birth_date on users using brin (birth_date);
@@ -0,0 +1,40 @@
+package com.clearsolutions.usersapi;
+
+import com.clearsolutions.usersapi.dto.UserChangeDto;
+import com.clearsolutions.usersapi.dto.UserDto;
+import com.clearsolutions.usersapi.entity.UserIdGenerator;
+import com.clearsolutions.usersapi.entity.UserIdSequence;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UsersApiRuntimeHintsTest {
+
+    private final RuntimeHints hints = new RuntimeHints();
+
+    UsersApiRuntimeHintsTest() {
+        new UsersApiRuntimeHints().registerHints(hints, getClass().getClassLoader());
+    }
+
+    @Test
+    void registersTypesCreatedByName() throws NoSuchMethodException {
+        assertTrue(RuntimeHintsPredicates.reflection()
+                .onConstructor(UserIdGenerator.class.getConstructor(UserIdSequence.class)).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection()
+                .onConstructor(UserDto.class.getConstructor(Long.class, String.class, String.class, String.class,
+                        LocalDate.class, String.class, String.class, Long.class)).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onType(UserChangeDto.class).test(hints));
+    }
+
+    @Test
+    void registersMigrationsAndCacheConfiguration() {
+        assertTrue(RuntimeHintsPredicates.resource().forResource("db/migration/V1__create_users.sql").test(hints));
+        assertTrue(RuntimeHintsPredicates.resource()
+                .forResource("db/optional/brin/R__users_birth_date_brin.sql").test(hints));
+        assertTrue(RuntimeHintsPredicates.resource().forResource("hibernate-cache.conf").test(hints));
+    }
+}
@@ -0,0 +1,93 @@
+package com.clearsolutions.usersapi.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimitTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(50);
+
+    @Test
+    void rejectsOnceLimitIsInUse() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 10, 2.0, 0.5);
+
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+        assertEquals(2, limit.getInFlight());
+
+        limit.release();
+        assertTrue(limit.tryAcquire());
+    }
+
+    @Test
+    void growsWhileFastAndBusy() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(2, 1, 3, 2.0, 0.5);
+
+        for (int i = 0; i < 5; i++) {
+            limit.tryAcquire();
+            limit.tryAcquire();
+            limit.release(FAST, false);
+            limit.release(FAST, false);
+        }
+
+        assertEquals(3, limit.getLimit());
+    }
+
+    @Test
+    void shrinksWhenLatencyRises() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(10, 2, 10, 2.0, 0.5);
+        for (int i = 0; i < 100; i++) {
+            releaseBusy(limit, FAST);
+        }
+        assertEquals(10, limit.getLimit());
+
+        for (int i = 0; i < 10; i++) {
+            releaseBusy(limit, SLOW);
+        }
+
+        assertTrue(limit.getLimit() < 10);
+    }
+
+    @Test
+    void shrinksOnFailedRequests() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(8, 2, 10, 2.0, 0.5);
+
+        limit.tryAcquire();
+        limit.release(FAST, true);
+        assertEquals(4, limit.getLimit());
+
+        limit.tryAcquire();
+        limit.release(SLOW, true);
+        assertEquals(2, limit.getLimit());
+
+        limit.tryAcquire();
+        limit.release(FAST, true);
+        assertEquals(2, limit.getLimit());
+    }
+
+    @Test
+    void holdsUpUnderMixedLatencies() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 2, 100, 2.0, 0.9);
+
+        for (int i = 0; i < 1000; i++) {
+            releaseBusy(limit, i % 2 == 0 ? FAST : SLOW);
+        }
+
+        assertTrue(limit.getLimit() >= 20, "limit collapsed to " + limit.getLimit());
+    }
+
+    private static void releaseBusy(AdaptiveConcurrencyLimit limit, long latencyNanos) {
+        while (limit.tryAcquire()) {
+            // Fill the limit so the sample counts as taken under load.
+        }
+        limit.release(latencyNanos, false);
+    }
+}
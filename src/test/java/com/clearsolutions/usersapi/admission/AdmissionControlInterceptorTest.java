@@ -0,0 +1,60 @@
+package com.clearsolutions.usersapi.admission;
+
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AdmissionControlInterceptorTest {
+
+    private static final String PROXY = "10.0.0.1";
+
+    private final AdmissionControlInterceptor interceptor = new AdmissionControlInterceptor(limits(),
+            new ClientRateLimiter(10, 2, 100, Duration.ofMinutes(1), Ticker.systemTicker()),
+            "X-Client-Id", Set.of(PROXY), new SimpleMeterRegistry());
+
+    @Test
+    void ignoresClientHeaderFromUntrustedCallers() {
+        MockHttpServletRequest request = request("203.0.113.7", "spoofed");
+
+        assertEquals("address:203.0.113.7", interceptor.clientOf(request));
+    }
+
+    @Test
+    void takesClientHeaderFromTrustedProxy() {
+        assertEquals("client:tenant-a", interceptor.clientOf(request(PROXY, "tenant-a")));
+        assertEquals("address:" + PROXY, interceptor.clientOf(request(PROXY, null)));
+    }
+
+    @Test
+    void prefersAuthenticatedPrincipal() {
+        MockHttpServletRequest request = request(PROXY, "tenant-a");
+        request.setUserPrincipal(() -> "alice");
+
+        assertEquals("principal:alice", interceptor.clientOf(request));
+    }
+
+    private static MockHttpServletRequest request(String remoteAddress, String client) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/users");
+        request.setRemoteAddr(remoteAddress);
+        if (client != null) {
+            request.addHeader("X-Client-Id", client);
+        }
+        return request;
+    }
+
+    private static Map<EndpointClass, AdaptiveConcurrencyLimit> limits() {
+        Map<EndpointClass, AdaptiveConcurrencyLimit> limits = new EnumMap<>(EndpointClass.class);
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            limits.put(endpointClass, new AdaptiveConcurrencyLimit(2, 1, 10, 2.0, 0.5));
+        }
+        return limits;
+    }
+}
@@ -0,0 +1,37 @@
+package com.clearsolutions.usersapi.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClientRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private final ClientRateLimiter rateLimiter =
+            new ClientRateLimiter(10, 2, 100, Duration.ofMinutes(1), now::get);
+
+    @Test
+    void allowsBurstThenRefillsAtRate() {
+        assertEquals(0, rateLimiter.tryAcquire("a"));
+        assertEquals(0, rateLimiter.tryAcquire("a"));
+        long waitNanos = rateLimiter.tryAcquire("a");
+        assertTrue(waitNanos > TimeUnit.MILLISECONDS.toNanos(99) && waitNanos <= TimeUnit.MILLISECONDS.toNanos(101));
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(101));
+        assertEquals(0, rateLimiter.tryAcquire("a"));
+    }
+
+    @Test
+    void keepsSeparateBucketsPerClient() {
+        rateLimiter.tryAcquire("a");
+        rateLimiter.tryAcquire("a");
+
+        assertEquals(0, rateLimiter.tryAcquire("b"));
+    }
+}
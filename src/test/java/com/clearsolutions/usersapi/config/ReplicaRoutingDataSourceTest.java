@@ -0,0 +1,230 @@
+package com.clearsolutions.usersapi.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.Cacheable;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import org.hibernate.SessionFactory;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.jpa.HibernateHints;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplicaRoutingDataSourceTest {
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final HikariDataSource primary = node("primary");
+
+    private final HikariDataSource firstReplica = node("replica-a");
+
+    private final HikariDataSource secondReplica = node("replica-b");
+
+    private ReplicaRoutingDataSource router;
+
+    @AfterEach
+    void tearDown() {
+        router.close();
+        firstReplica.close();
+        secondReplica.close();
+        primary.close();
+    }
+
+    @Test
+    void readOnlyTransactionsGoToReplicasInTurn() {
+        router = router(ReplicaRoutingProperties.Strategy.ROUND_ROBIN, firstReplica, secondReplica);
+        LazyConnectionDataSourceProxy dataSource = proxy();
+
+        List<String> readNodes = List.of(nodeName(dataSource, true), nodeName(dataSource, true),
+                nodeName(dataSource, true));
+
+        assertEquals(3, readNodes.size());
+        assertEquals(readNodes.get(0), readNodes.get(2));
+        assertEquals(List.of("replica-a", "replica-b"), readNodes.subList(0, 2).stream().sorted().toList());
+        assertEquals("primary", nodeName(dataSource, false));
+    }
+
+    @Test
+    void readOnlyTransactionsFallBackToPrimaryWhenReplicasAreDown() {
+        router = router(ReplicaRoutingProperties.Strategy.LEAST_CONNECTIONS, firstReplica);
+        LazyConnectionDataSourceProxy dataSource = proxy();
+        assertEquals("replica-a", nodeName(dataSource, true));
+
+        firstReplica.close();
+        router.checkHealth();
+
+        assertEquals(0, router.healthyReplicas());
+        assertEquals("primary", nodeName(dataSource, true));
+        assertEquals(1.0, meterRegistry.get("users.datasource.replicas.fallbacks").counter().count());
+    }
+
+    @Test
+    void readOnlyTransactionsFallBackToPrimaryWhenReplicaUrlIsInvalid() {
+        HikariDataSource brokenReplica = new HikariDataSource();
+        brokenReplica.setPoolName("broken");
+        brokenReplica.setJdbcUrl("jdbc:unknown:replica");
+        brokenReplica.setInitializationFailTimeout(-1);
+        try {
+            router = router(ReplicaRoutingProperties.Strategy.ROUND_ROBIN, brokenReplica);
+            LazyConnectionDataSourceProxy dataSource = proxy();
+
+            assertEquals("primary", nodeName(dataSource, true));
+
+            router.checkHealth();
+            assertEquals(0, router.healthyReplicas());
+            assertEquals("primary", nodeName(dataSource, true));
+        } finally {
+            brokenReplica.close();
+        }
+    }
+
+    @Test
+    void readOnlyJpaTransactionsGoToReplica() {
+        router = router(ReplicaRoutingProperties.Strategy.ROUND_ROBIN, firstReplica);
+        LocalContainerEntityManagerFactoryBean factoryBean = entityManagerFactoryBean(Map.of());
+        EntityManagerFactory entityManagerFactory = factoryBean.getObject();
+        try {
+            JpaTransactionManager transactionManager = new JpaTransactionManager(entityManagerFactory);
+
+            assertEquals("replica-a", jpaNodeName(transactionManager, entityManagerFactory, true));
+            assertEquals("primary", jpaNodeName(transactionManager, entityManagerFactory, false));
+        } finally {
+            factoryBean.destroy();
+        }
+    }
+
+    @Test
+    void readOnlyJpaTransactionsDoNotCacheWhatALaggingReplicaReturns() {
+        router = router(ReplicaRoutingProperties.Strategy.ROUND_ROBIN, firstReplica);
+        LocalContainerEntityManagerFactoryBean factoryBean = entityManagerFactoryBean(Map.of(
+                "hibernate.cache.use_second_level_cache", "true",
+                "hibernate.cache.use_query_cache", "true",
+                "hibernate.cache.region.factory_class", "jcache",
+                "hibernate.javax.cache.provider", "com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider",
+                "hibernate.javax.cache.missing_cache_strategy", "create",
+                "hibernate.generate_statistics", "true"));
+        EntityManagerFactory entityManagerFactory = factoryBean.getObject();
+        try {
+            JpaTransactionManager transactionManager = new JpaTransactionManager(entityManagerFactory);
+            SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+
+            // The replica still has the row as it was before the primary changed it.
+            assertEquals("replica-a", findNode(transactionManager, entityManagerFactory, true));
+            assertEquals("replica-a", queryNode(transactionManager, entityManagerFactory, true));
+            assertFalse(sessionFactory.getCache().containsEntity(Node.class, 1L));
+            assertEquals(0, sessionFactory.getStatistics().getQueryCachePutCount());
+
+            assertEquals("primary", findNode(transactionManager, entityManagerFactory, false));
+            assertTrue(sessionFactory.getCache().containsEntity(Node.class, 1L));
+            assertEquals("primary", findNode(transactionManager, entityManagerFactory, true));
+        } finally {
+            factoryBean.destroy();
+        }
+    }
+
+    private LocalContainerEntityManagerFactoryBean entityManagerFactoryBean(Map<String, ?> jpaProperties) {
+        LocalContainerEntityManagerFactoryBean factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setDataSource(proxy());
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setJpaDialect(new ReplicaAwareJpaDialect());
+        factoryBean.setJpaPropertyMap(jpaProperties);
+        factoryBean.setPackagesToScan(getClass().getPackageName());
+        factoryBean.afterPropertiesSet();
+        return factoryBean;
+    }
+
+    private ReplicaRoutingDataSource router(ReplicaRoutingProperties.Strategy strategy, HikariDataSource... replicas) {
+        return new ReplicaRoutingDataSource(List.of(replicas), primary, strategy,
+                Duration.ofHours(1), Duration.ofSeconds(1), meterRegistry);
+    }
+
+    private LazyConnectionDataSourceProxy proxy() {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primary);
+        dataSource.setReadOnlyDataSource(router);
+        return dataSource;
+    }
+
+    private static String nodeName(LazyConnectionDataSourceProxy dataSource, boolean readOnly) {
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status ->
+                new JdbcTemplate(dataSource).queryForObject("select name from node", String.class));
+    }
+
+    private static String jpaNodeName(JpaTransactionManager transactionManager,
+                                      EntityManagerFactory entityManagerFactory, boolean readOnly) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status -> (String) EntityManagerFactoryUtils
+                .getTransactionalEntityManager(entityManagerFactory)
+                .createNativeQuery("select name from node")
+                .getSingleResult());
+    }
+
+    private static String findNode(JpaTransactionManager transactionManager,
+                                   EntityManagerFactory entityManagerFactory, boolean readOnly) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status -> EntityManagerFactoryUtils
+                .getTransactionalEntityManager(entityManagerFactory)
+                .find(Node.class, 1L)
+                .name);
+    }
+
+    private static String queryNode(JpaTransactionManager transactionManager,
+                                    EntityManagerFactory entityManagerFactory, boolean readOnly) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status -> EntityManagerFactoryUtils
+                .getTransactionalEntityManager(entityManagerFactory)
+                .createQuery("select n.name from Node n where n.id = 1", String.class)
+                .setHint(HibernateHints.HINT_CACHEABLE, true)
+                .getSingleResult());
+    }
+
+    private static HikariDataSource node(String name) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName(name);
+        dataSource.setJdbcUrl("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        dataSource.setMaximumPoolSize(2);
+        dataSource.setConnectionTimeout(500);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("create table if not exists node (id bigint, name varchar(32))");
+        jdbcTemplate.execute("delete from node");
+        jdbcTemplate.update("insert into node (id, name) values (1, ?)", name);
+        return dataSource;
+    }
+
+    @Entity(name = "Node")
+    @Table(name = "node")
+    @Cacheable
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+    static class Node {
+
+        @Id
+        Long id;
+
+        String name;
+    }
+}
@@ -0,0 +1,119 @@
+package com.clearsolutions.usersapi.index;
+
+import com.clearsolutions.usersapi.dto.UserCursor;
+import com.clearsolutions.usersapi.dto.UserDto;
+import com.clearsolutions.usersapi.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+class UserRangeIndexTest {
+
+    private static final LocalDate DATE_FROM = LocalDate.of(1990, 1, 1);
+    private static final LocalDate DATE_TO = LocalDate.of(1999, 12, 31);
+
+    private final UserRepository userRepository = Mockito.mock(UserRepository.class);
+
+    private UserRangeIndex userRangeIndex;
+
+    @BeforeEach
+    void setUp() {
+        userRangeIndex = new UserRangeIndex(userRepository);
+        ReflectionTestUtils.setField(userRangeIndex, "enabled", true);
+        ReflectionTestUtils.setField(userRangeIndex, "compactionThreshold", 3);
+        // Small enough that every record lands in a chunk of its own.
+        ReflectionTestUtils.setField(userRangeIndex, "chunkBytes", 128);
+        ReflectionTestUtils.setField(userRangeIndex, "compactionExecutor", (Executor) Runnable::run);
+        when(userRepository.streamAllDtos()).thenReturn(Stream.of(
+                user(1L, LocalDate.of(1985, 5, 5)),
+                user(2L, LocalDate.of(1990, 1, 1)),
+                user(3L, LocalDate.of(1995, 6, 15)),
+                user(4L, LocalDate.of(1995, 6, 15)),
+                user(5L, LocalDate.of(2001, 2, 2))));
+        userRangeIndex.build();
+    }
+
+    @Test
+    void findReturnsRangeInBirthDateAndIdOrder() {
+        List<UserDto> result = userRangeIndex.find(DATE_FROM, DATE_TO, null, 10);
+
+        assertTrue(userRangeIndex.isReady());
+        assertThat(result).extracting(UserDto::getId).containsExactly(2L, 3L, 4L);
+        assertThat(result.get(0)).isEqualTo(user(2L, LocalDate.of(1990, 1, 1)));
+    }
+
+    @Test
+    void findSeeksPastCursorAndHonoursLimit() {
+        UserCursor cursor = new UserCursor(LocalDate.of(1995, 6, 15), 3L);
+
+        assertThat(userRangeIndex.find(DATE_FROM, DATE_TO, null, 2))
+                .extracting(UserDto::getId).containsExactly(2L, 3L);
+        assertThat(userRangeIndex.find(DATE_FROM, DATE_TO, cursor, 2))
+                .extracting(UserDto::getId).containsExactly(4L);
+    }
+
+    @Test
+    void findReturnsNothingForCursorPastRange() {
+        UserCursor cursor = new UserCursor(DATE_TO.plusDays(1), 1L);
+
+        assertThat(userRangeIndex.find(DATE_FROM, DATE_TO, cursor, 10)).isEmpty();
+    }
+
+    @Test
+    void writesShadowSegmentAndSurviveCompaction() {
+        userRangeIndex.upsertAfterCommit(user(6L, LocalDate.of(1992, 3, 3)));
+        userRangeIndex.upsertAfterCommit(user(3L, LocalDate.of(1980, 1, 1)));
+
+        assertThat(userRangeIndex.find(DATE_FROM, DATE_TO, null, 10))
+                .extracting(UserDto::getId).containsExactly(2L, 6L, 4L);
+
+        userRangeIndex.removeAfterCommit(4L);
+
+        assertThat(userRangeIndex.find(DATE_FROM, DATE_TO, null, 10))
+                .extracting(UserDto::getId).containsExactly(2L, 6L);
+        assertThat(userRangeIndex.find(LocalDate.of(1970, 1, 1), LocalDate.of(2010, 1, 1), null, 10))
+                .extracting(UserDto::getId).containsExactly(3L, 1L, 2L, 6L, 5L);
+    }
+
+    @Test
+    void writesDuringCompactionSurviveTheSwap() {
+        List<Runnable> compactions = new ArrayList<>();
+        ReflectionTestUtils.setField(userRangeIndex, "compactionExecutor", (Executor) compactions::add);
+
+        userRangeIndex.upsertAfterCommit(user(6L, LocalDate.of(1992, 3, 3)));
+        userRangeIndex.removeAfterCommit(1L);
+        userRangeIndex.upsertAfterCommit(user(7L, LocalDate.of(1993, 4, 4)));
+        assertThat(compactions).hasSize(1);
+
+        userRangeIndex.upsertAfterCommit(user(8L, LocalDate.of(1991, 2, 2)));
+        userRangeIndex.upsertAfterCommit(user(6L, LocalDate.of(1996, 3, 3)));
+        userRangeIndex.removeAfterCommit(7L);
+        compactions.get(0).run();
+
+        assertThat(userRangeIndex.find(LocalDate.of(1970, 1, 1), LocalDate.of(2010, 1, 1), null, 10))
+                .extracting(UserDto::getId).containsExactly(2L, 8L, 3L, 4L, 6L, 5L);
+        assertThat(userRangeIndex.find(LocalDate.of(1996, 1, 1), LocalDate.of(1996, 12, 31), null, 10))
+                .containsExactly(user(6L, LocalDate.of(1996, 3, 3)));
+    }
+
+    private static UserDto user(Long id, LocalDate birthDate) {
+        return new UserDto()
+                .setId(id)
+                .setEmail("user" + id + "@gmail.com")
+                .setFirstName("Name" + id)
+                .setSurname("Surname" + id)
+                .setBirthDate(birthDate)
+                .setPhoneNumber(id % 2 == 0 ? "999-999-999" : null);
+    }
+}
@@ -0,0 +1,72 @@
+package com.clearsolutions.usersapi.index;
+
+import com.clearsolutions.usersapi.dto.UserDto;
+import com.clearsolutions.usersapi.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+class UserSearchIndexTest {
+
+    private final UserRepository userRepository = Mockito.mock(UserRepository.class);
+
+    private UserSearchIndex userSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        userSearchIndex = new UserSearchIndex(userRepository);
+        ReflectionTestUtils.setField(userSearchIndex, "enabled", true);
+        when(userRepository.streamAllDtos()).thenReturn(Stream.of(
+                user(1L, "Anna", "Smith", "anna@gmail.com"),
+                user(2L, "Andrew", "Anderson", "drew@gmail.com"),
+                user(3L, "Bob", "Annis", "bob@gmail.com")));
+        userSearchIndex.build();
+    }
+
+    @Test
+    void findMatchesAnyFieldByPrefix() {
+        assertTrue(userSearchIndex.isReady());
+        assertEquals(List.of(2L, 1L, 3L), userSearchIndex.find("an", 10));
+        assertEquals(List.of(2L), userSearchIndex.find("DREW", 10));
+    }
+
+    @Test
+    void findStopsAtLimit() {
+        assertEquals(List.of(2L, 1L), userSearchIndex.find("an", 2));
+    }
+
+    @Test
+    void upsertReplacesPreviousTerms() {
+        userSearchIndex.upsertAfterCommit(user(1L, "Zoe", "Smith", "zoe@gmail.com"));
+
+        assertEquals(List.of(1L), userSearchIndex.find("zo", 10));
+        assertFalse(userSearchIndex.find("ann", 10).contains(1L));
+    }
+
+    @Test
+    void removeDropsAllTerms() {
+        userSearchIndex.removeAfterCommit(3L);
+
+        assertEquals(List.of(), userSearchIndex.find("bob", 10));
+        assertEquals(List.of(1L), userSearchIndex.find("annA", 10));
+    }
+
+    private static UserDto user(Long id, String firstName, String surname, String email) {
+        return new UserDto()
+                .setId(id)
+                .setEmail(email)
+                .setFirstName(firstName)
+                .setSurname(surname)
+                .setBirthDate(LocalDate.of(1990, 1, 1));
+    }
+}
@@ -0,0 +1,140 @@
+package com.clearsolutions.usersapi.repository;
+
+import com.clearsolutions.usersapi.dto.UserDto;
+import com.clearsolutions.usersapi.entity.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * PATCH goes through a native UPDATE ... RETURNING that Hibernate does not track, so it has to keep the
+ * second-level and query caches right by itself, and must still work when they are disabled.
+ */
+@SpringBootTest
+abstract class UserPatchRepositoryCacheTest {
+
+    private static final LocalDate BIRTH_DATE = LocalDate.of(1901, 2, 3);
+
+    @Autowired
+    UserRepository userRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    TransactionTemplate transaction;
+
+    Long id;
+
+    String email;
+
+    @BeforeEach
+    void setUp() {
+        transaction = new TransactionTemplate(transactionManager);
+        email = UUID.randomUUID() + "@patch-cache.test";
+        id = transaction.execute(status -> userRepository.save(User.builder()
+                .email(email)
+                .firstName("Original")
+                .surname("Surname")
+                .birthDate(BIRTH_DATE)
+                .build()).getId());
+    }
+
+    @AfterEach
+    void tearDown() {
+        transaction.executeWithoutResult(status -> userRepository.deleteById(id));
+    }
+
+    @TestPropertySource(properties = {
+            "spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+            "spring.jpa.properties.hibernate.cache.use_query_cache=true",
+            "spring.jpa.properties.hibernate.generate_statistics=true"})
+    static class CachesEnabledTest extends UserPatchRepositoryCacheTest {
+
+        @Test
+        void patchEvictsEntityAndInvalidatesCachedRangeQueries() {
+            SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+            Statistics statistics = sessionFactory.getStatistics();
+
+            transaction.execute(status -> userRepository.findById(id));
+            assertTrue(sessionFactory.getCache().containsEntity(User.class, id));
+            assertEquals("Original", findFirstNameInRange());
+            long hits = statistics.getQueryCacheHitCount();
+            assertEquals("Original", findFirstNameInRange());
+            assertEquals(hits + 1, statistics.getQueryCacheHitCount());
+
+            patchFirstName("Patched");
+
+            assertFalse(sessionFactory.getCache().containsEntity(User.class, id));
+            assertEquals("Patched", transaction.execute(status -> userRepository.findById(id).orElseThrow())
+                    .getFirstName());
+            assertEquals("Patched", findFirstNameInRange());
+        }
+    }
+
+    @TestPropertySource(properties = {
+            "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+            "spring.jpa.properties.hibernate.cache.use_query_cache=false"})
+    static class CachesDisabledTest extends UserPatchRepositoryCacheTest {
+
+        @Test
+        void patchUpdatesRow() {
+            patchFirstName("Patched");
+
+            assertEquals("Patched", transaction.execute(status -> userRepository.findById(id).orElseThrow())
+                    .getFirstName());
+            assertEquals("Patched", findFirstNameInRange());
+        }
+
+        @Test
+        void patchAndDeleteReturnThePreviousEmail() {
+            String newEmail = UUID.randomUUID() + "@patch-cache.test";
+
+            PatchedUser patched = transaction.execute(status ->
+                    userRepository.patch(id, new User().setEmail(newEmail), null).orElseThrow());
+
+            assertEquals(email, patched.previousEmail());
+            assertEquals(newEmail, patched.user().getEmail());
+            assertEquals(Optional.empty(), transaction.execute(status -> userRepository.delete(id, 0L)));
+            assertEquals(Optional.of(newEmail), transaction.execute(status -> userRepository.delete(id, null)));
+            assertEquals(Optional.empty(), transaction.execute(status -> userRepository.delete(id, null)));
+        }
+    }
+
+    void patchFirstName(String firstName) {
+        PatchedUser patched = transaction.execute(status ->
+                userRepository.patch(id, new User().setFirstName(firstName), null).orElseThrow());
+        assertEquals(firstName, patched.user().getFirstName());
+        assertEquals(email, patched.previousEmail());
+    }
+
+    String findFirstNameInRange() {
+        List<UserDto> users = transaction.execute(status ->
+                userRepository.findDtosByBirthDateBetween(BIRTH_DATE, BIRTH_DATE, PageRequest.of(0, 10)));
+        return users.stream()
+                .filter(user -> user.getId().equals(id))
+                .findFirst()
+                .orElseThrow()
+                .getFirstName();
+    }
+}
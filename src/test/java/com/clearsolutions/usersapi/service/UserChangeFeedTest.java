@@ -0,0 +1,69 @@
+package com.clearsolutions.usersapi.service;
+
+import com.clearsolutions.usersapi.dto.ChangeCursor;
+import com.clearsolutions.usersapi.exceptions.ResourceGoneException;
+import com.clearsolutions.usersapi.repository.PurgeWatermark;
+import com.clearsolutions.usersapi.repository.UserChangeRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.when;
+
+class UserChangeFeedTest {
+
+    private final UserChangeRepository userChangeRepository = Mockito.mock(UserChangeRepository.class);
+
+    private final UserChangeFeed userChangeFeed = new UserChangeFeed(userChangeRepository, new SimpleMeterRegistry(),
+            Duration.ofHours(1), 500, Duration.ofMinutes(1), Duration.ofSeconds(15), Duration.ofDays(7), 1);
+
+    @AfterEach
+    void tearDown() {
+        userChangeFeed.shutdown();
+    }
+
+    @Test
+    void rejectsCursorBeforeNewestPurgedChange() {
+        when(userChangeRepository.findPurgeWatermark()).thenReturn(watermark(100L, 7L));
+
+        assertThrows(ResourceGoneException.class, () -> userChangeFeed.subscribe(new ChangeCursor(99L, 50L)));
+        assertThrows(ResourceGoneException.class, () -> userChangeFeed.subscribe(new ChangeCursor(100L, 6L)));
+    }
+
+    @Test
+    void rejectsOldCursorAfterPurgeEmptiedTheOutbox() {
+        when(userChangeRepository.findPurgeWatermark()).thenReturn(watermark(100L, 7L));
+        when(userChangeRepository.findLatestVisible()).thenReturn(Optional.empty());
+
+        assertThrows(ResourceGoneException.class, () -> userChangeFeed.subscribe(new ChangeCursor(3L, 1L)));
+        assertNotNull(userChangeFeed.subscribe(null));
+    }
+
+    @Test
+    void resumesFromCursorAtOrAfterNewestPurgedChange() {
+        when(userChangeRepository.findPurgeWatermark()).thenReturn(watermark(100L, 7L));
+
+        assertNotNull(userChangeFeed.subscribe(new ChangeCursor(100L, 7L)));
+        assertNotNull(userChangeFeed.subscribe(new ChangeCursor(120L, 1L)));
+    }
+
+    private static PurgeWatermark watermark(long txId, long id) {
+        return new PurgeWatermark() {
+            @Override
+            public Long getTxId() {
+                return txId;
+            }
+
+            @Override
+            public Long getId() {
+                return id;
+            }
+        };
+    }
+}
@@ -1,25 +1,49 @@
 package com.clearsolutions.usersapi.service;
 
 
+import com.clearsolutions.usersapi.codec.UserColumnarCodec;
+import com.clearsolutions.usersapi.codec.UserColumnarHttpMessageConverter;
+import com.clearsolutions.usersapi.controller.UserController;
+import com.clearsolutions.usersapi.dto.BatchItemResult;
+import com.clearsolutions.usersapi.dto.ChangeCursor;
+import com.clearsolutions.usersapi.dto.BucketCountDto;
+import com.clearsolutions.usersapi.dto.CursorPage;
+import com.clearsolutions.usersapi.dto.StatsBucket;
+import com.clearsolutions.usersapi.dto.UserCursor;
 import com.clearsolutions.usersapi.dto.UserDto;
+import com.clearsolutions.usersapi.dto.UserStatsDto;
+import com.clearsolutions.usersapi.exceptions.ExceptionBody;
 import com.clearsolutions.usersapi.exceptions.InvalidRequestParametersException;
+import com.clearsolutions.usersapi.exceptions.PreconditionFailedException;
+import com.clearsolutions.usersapi.exceptions.ResourceNotFoundException;
+import com.clearsolutions.usersapi.exceptions.ServiceUnavailableException;
+import com.clearsolutions.usersapi.exceptions.TooManyRequestsException;
 import com.clearsolutions.usersapi.mapper.UserMapper;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.ByteArrayInputStream;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -35,14 +59,21 @@ public class UserControllerTest {
     private MockMvc mockMvc;
     @Autowired
     private UserMapper userMapper;
+    @Autowired
+    private MeterRegistry meterRegistry;
     @MockBean
     private UserService userService;
+    @MockBean
+    private UserChangeFeed userChangeFeed;
     private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     private static final Long ID = 1L;
+    private static final Long VERSION = 3L;
+    private static final String E_TAG = "\"3\"";
     private static final String INVALID_EMAIL = "invalidEmail";
     private static final LocalDate INVALID_DATE = LocalDate.now().plusYears(1);
     private static final String DATE_FROM = "1999-01-01";
     private static final String DATE_TO = "2005-01-01";
+    private static final int DEFAULT_LIMIT = 100;
 
     private UserDto userDto = new UserDto()
             .setId(1L)
@@ -51,7 +82,8 @@ public class UserControllerTest {
             .setSurname("TestSurname")
             .setBirthDate(LocalDate.of(1999, 9, 9))
             .setAddress("TestAddress")
-            .setPhoneNumber("999-999-999");
+            .setPhoneNumber("999-999-999")
+            .setVersion(VERSION);
 
     private UserDto WithoutRequiredFields = new UserDto()
             .setAddress("TestAddress")
@@ -60,8 +92,8 @@ public class UserControllerTest {
     @Test
     void findByDateOfBirthBetween() throws Exception {
         when(userService.findByDateOfBirthBetween(LocalDate.parse(DATE_FROM, DATE_TIME_FORMATTER),
-                LocalDate.parse(DATE_TO, DATE_TIME_FORMATTER)))
-                .thenReturn(List.of(userDto));
+                LocalDate.parse(DATE_TO, DATE_TIME_FORMATTER), null, DEFAULT_LIMIT))
+                .thenReturn(new CursorPage<>(List.of(userDto), null));
 
 
         mockMvc.perform(get("/api/v1/users").
@@ -76,6 +108,68 @@ public class UserControllerTest {
 
     }
 
+    @Test
+    void findByDateOfBirthBetweenWithCursor() throws Exception {
+        UserCursor cursor = new UserCursor(LocalDate.of(2000, 1, 1), ID);
+        String nextCursor = UserCursor.after(userDto).encode();
+        when(userService.findByDateOfBirthBetween(LocalDate.parse(DATE_FROM, DATE_TIME_FORMATTER),
+                LocalDate.parse(DATE_TO, DATE_TIME_FORMATTER), cursor, 1))
+                .thenReturn(new CursorPage<>(List.of(userDto), nextCursor));
+
+        mockMvc.perform(get("/api/v1/users")
+                        .param("from", DATE_FROM)
+                        .param("to", DATE_TO)
+                        .param("cursor", cursor.encode())
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(UserController.NEXT_CURSOR_HEADER, nextCursor))
+                .andExpect(jsonPath("$[0].id").value(userDto.getId()));
+    }
+
+    @Test
+    void findByDateOfBirthBetweenWithInvalidCursor() throws Exception {
+        mockMvc.perform(get("/api/v1/users")
+                        .param("from", DATE_FROM)
+                        .param("to", DATE_TO)
+                        .param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid cursor"));
+    }
+
+    @Test
+    void findByDateOfBirthBetweenWithTooLargeLimit() throws Exception {
+        mockMvc.perform(get("/api/v1/users")
+                        .param("from", DATE_FROM)
+                        .param("to", DATE_TO)
+                        .param("limit", "100000"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Validation failed."));
+    }
+
+    @Test
+    void exportByDateOfBirthBetweenAsNdjson() throws Exception {
+        doAnswer(invocation -> {
+            Consumer<UserDto> consumer = invocation.getArgument(2);
+            consumer.accept(userDto);
+            consumer.accept(userDto);
+            return null;
+        }).when(userService).exportByDateOfBirthBetween(Mockito.eq(LocalDate.parse(DATE_FROM, DATE_TIME_FORMATTER)),
+                Mockito.eq(LocalDate.parse(DATE_TO, DATE_TIME_FORMATTER)), Mockito.any());
+
+        MvcResult asyncResult = mockMvc.perform(get("/api/v1/users")
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .param("from", DATE_FROM)
+                        .param("to", DATE_TO))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String line = objectMapper.writeValueAsString(userDto);
+        mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(line + "\n" + line + "\n"));
+    }
+
     @Test
     void findByDateOfBirthBetweenByInvalidParams() throws Exception {
 
@@ -92,6 +186,143 @@ public class UserControllerTest {
                 });
     }
 
+    @Test
+    void countByDateOfBirthBetween() throws Exception {
+        LocalDate from = LocalDate.parse(DATE_FROM, DATE_TIME_FORMATTER);
+        LocalDate to = LocalDate.parse(DATE_TO, DATE_TIME_FORMATTER);
+        when(userService.countByDateOfBirthBetween(from, to, StatsBucket.AGE_BAND))
+                .thenReturn(new UserStatsDto(StatsBucket.AGE_BAND, from, to, 4, List.of(new BucketCountDto("20-29", 4))));
+
+        mockMvc.perform(get("/api/v1/users/stats")
+                        .param("from", DATE_FROM)
+                        .param("to", DATE_TO)
+                        .param("bucket", "AGE_BAND"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(4))
+                .andExpect(jsonPath("$.counts[0].bucket").value("20-29"))
+                .andExpect(jsonPath("$.counts[0].count").value(4));
+    }
+
+    @Test
+    void countByDateOfBirthBetweenWithInvalidBucket() throws Exception {
+        mockMvc.perform(get("/api/v1/users/stats")
+                        .param("from", DATE_FROM)
+                        .param("to", DATE_TO)
+                        .param("bucket", "WEEK"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid value for parameter 'bucket'."));
+    }
+
+    @Test
+    void changesResumeFromLastEventId() throws Exception {
+        ChangeCursor cursor = new ChangeCursor(7L, 42L);
+        when(userChangeFeed.subscribe(cursor)).thenReturn(new SseEmitter());
+
+        mockMvc.perform(get("/api/v1/users/changes")
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .header(UserController.LAST_EVENT_ID_HEADER, cursor.encode()))
+                .andExpect(request().asyncStarted());
+    }
+
+    @Test
+    void changesWithInvalidCursor() throws Exception {
+        mockMvc.perform(get("/api/v1/users/changes")
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .param("after", "not-a-cursor"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Invalid cursor"));
+    }
+
+    @Test
+    void unavailableRequestsAreCountedAsHandledExceptions() throws Exception {
+        double before = handledExceptions("handleServiceUnavailable", "ServiceUnavailableException");
+        when(userService.findById(ID)).thenThrow(new ServiceUnavailableException("Shutting down"));
+
+        mockMvc.perform(get("/api/v1/users/{id}", ID))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+
+        assertEquals(before + 1, handledExceptions("handleServiceUnavailable", "ServiceUnavailableException"));
+    }
+
+    @Test
+    void throttledRequestsAreCountedAsHandledExceptions() throws Exception {
+        double before = handledExceptions("handleTooManyRequests", "TooManyRequestsException");
+        when(userService.findById(ID)).thenThrow(new TooManyRequestsException("Too many requests", 2));
+
+        mockMvc.perform(get("/api/v1/users/{id}", ID))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "2"));
+
+        assertEquals(before + 1, handledExceptions("handleTooManyRequests", "TooManyRequestsException"));
+    }
+
+    @Test
+    void search() throws Exception {
+        when(userService.search("tes", 20)).thenReturn(List.of(userDto));
+
+        mockMvc.perform(get("/api/v1/users/search").param("q", "tes"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].email").value(userDto.getEmail()));
+    }
+
+    @Test
+    void searchWithTooShortQuery() throws Exception {
+        mockMvc.perform(get("/api/v1/users/search").param("q", "t"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Validation failed."));
+    }
+
+    @Test
+    void findByDateOfBirthBetweenInColumnarLayout() throws Exception {
+        when(userService.findByDateOfBirthBetween(LocalDate.parse(DATE_FROM, DATE_TIME_FORMATTER),
+                LocalDate.parse(DATE_TO, DATE_TIME_FORMATTER), null, DEFAULT_LIMIT))
+                .thenReturn(new CursorPage<>(List.of(userDto), null));
+
+        MvcResult result = mockMvc.perform(get("/api/v1/users")
+                        .param("from", DATE_FROM)
+                        .param("to", DATE_TO)
+                        .accept(UserColumnarHttpMessageConverter.MEDIA_TYPE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(UserColumnarHttpMessageConverter.MEDIA_TYPE))
+                .andReturn();
+
+        assertEquals(List.of(userDto), UserColumnarCodec.read(
+                new ByteArrayInputStream(result.getResponse().getContentAsByteArray())));
+    }
+
+    @Test
+    void findById() throws Exception {
+        when(userService.findById(ID)).thenReturn(userDto);
+
+        mockMvc.perform(get("/api/v1/users/{id}", ID))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string(HttpHeaders.ETAG, E_TAG))
+                .andExpect(jsonPath("$.id").value(userDto.getId()))
+                .andExpect(jsonPath("$.email").value(userDto.getEmail()));
+    }
+
+    @Test
+    void findByIdNotModified() throws Exception {
+        when(userService.findById(ID)).thenReturn(userDto);
+
+        mockMvc.perform(get("/api/v1/users/{id}", ID)
+                        .header(HttpHeaders.IF_NONE_MATCH, E_TAG))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, E_TAG))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void findByInvalidId() throws Exception {
+        when(userService.findById(ID)).thenThrow(new ResourceNotFoundException("User with this id not found"));
+
+        mockMvc.perform(get("/api/v1/users/{id}", ID))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.message").value("User with this id not found"));
+    }
+
     @Test
     void create() throws Exception {
         when(userService.create(userMapper.toEntity(userDto))).thenReturn(userDto);
@@ -108,6 +339,31 @@ public class UserControllerTest {
 
     }
 
+    @Test
+    void createUsers() throws Exception {
+        when(userService.createAll(List.of(userDto, WithoutRequiredFields)))
+                .thenReturn(List.of(BatchItemResult.created(0, userDto),
+                        BatchItemResult.failed(1, new ExceptionBody("Validation failed."))));
+
+        mockMvc.perform(post("/api/v1/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(userDto, WithoutRequiredFields))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status").value("CREATED"))
+                .andExpect(jsonPath("$[0].user.id").value(userDto.getId()))
+                .andExpect(jsonPath("$[1].status").value("FAILED"))
+                .andExpect(jsonPath("$[1].error.message").value("Validation failed."));
+    }
+
+    @Test
+    void createUsersWithEmptyBatch() throws Exception {
+        mockMvc.perform(post("/api/v1/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Validation failed."));
+    }
+
     @Test
     void createWithoutRequiredFields() throws Exception {
         mockMvc.perform(post("/api/v1/users")
@@ -155,7 +411,7 @@ public class UserControllerTest {
 
     @Test
     void update() throws Exception {
-        when(userService.update(ID, userMapper.toEntity(userDto)))
+        when(userService.update(ID, userMapper.toEntity(userDto), null))
                 .thenReturn(userDto);
 
         mockMvc.perform(put("/api/v1/users/{id}", ID)
@@ -206,7 +462,7 @@ public class UserControllerTest {
 
     @Test
     void partialUpdate() throws Exception {
-        when(userService.particularUpdate(ID, userMapper.toEntity(userDto))).thenReturn(userDto);
+        when(userService.particularUpdate(ID, userMapper.toEntity(userDto), null)).thenReturn(userDto);
 
         mockMvc.perform(patch("/api/v1/users/{id}", ID)
                         .contentType(MediaType.APPLICATION_JSON)
@@ -225,6 +481,31 @@ public class UserControllerTest {
 
     }
 
+    @Test
+    void partialUpdateWithIfMatch() throws Exception {
+        when(userService.particularUpdate(ID, userMapper.toEntity(userDto), VERSION)).thenReturn(userDto);
+
+        mockMvc.perform(patch("/api/v1/users/{id}", ID)
+                        .header(HttpHeaders.IF_MATCH, E_TAG)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(userDto)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, E_TAG));
+    }
+
+    @Test
+    void partialUpdateWithStaleIfMatch() throws Exception {
+        when(userService.particularUpdate(ID, userMapper.toEntity(userDto), 2L))
+                .thenThrow(new PreconditionFailedException(UserService.VERSION_MISMATCH_MESSAGE));
+
+        mockMvc.perform(patch("/api/v1/users/{id}", ID)
+                        .header(HttpHeaders.IF_MATCH, "\"2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(userDto)))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.message").value(UserService.VERSION_MISMATCH_MESSAGE));
+    }
+
     @Test
     void particularUpdateWithInvalidEmail() throws Exception {
         mockMvc.perform(patch("/api/v1/users/{id}", ID)
@@ -261,4 +542,8 @@ public class UserControllerTest {
                 .andExpect(status().isOk());
 
     }
-}
\ No newline at end of file
+
+    private double handledExceptions(String handler, String exception) {
+        return meterRegistry.counter("users.api.exceptions", "handler", handler, "exception", exception).count();
+    }
+}
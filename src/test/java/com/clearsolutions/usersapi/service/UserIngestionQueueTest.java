@@ -0,0 +1,138 @@
+package com.clearsolutions.usersapi.service;
+
+import com.clearsolutions.usersapi.dto.BatchItemResult;
+import com.clearsolutions.usersapi.dto.IngestionTicket;
+import com.clearsolutions.usersapi.dto.UserDto;
+import com.clearsolutions.usersapi.exceptions.ExceptionBody;
+import com.clearsolutions.usersapi.exceptions.ServiceUnavailableException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.when;
+
+class UserIngestionQueueTest {
+
+    private final UserService userService = Mockito.mock(UserService.class);
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final UserDto first = user("first@gmail.com");
+
+    private final UserDto second = user("second@gmail.com");
+
+    @Test
+    void drainWritesQueuedUsersInOneBatch() {
+        UserIngestionQueue queue = queue(10);
+        when(userService.createAll(List.of(first, second))).thenReturn(List.of(
+                BatchItemResult.created(0, first.setId(1L)),
+                BatchItemResult.created(1, second.setId(2L))));
+
+        IngestionTicket firstTicket = queue.submit(first);
+        IngestionTicket secondTicket = queue.submit(second);
+        assertEquals(IngestionTicket.Status.QUEUED, queue.find(firstTicket.getId()).orElseThrow().getStatus());
+
+        queue.drain();
+
+        assertEquals(IngestionTicket.Status.CREATED, queue.find(firstTicket.getId()).orElseThrow().getStatus());
+        assertEquals(2L, queue.find(secondTicket.getId()).orElseThrow().getUser().getId());
+        assertEquals(1, meterRegistry.get("users.ingestion.flush").timer().count());
+        Mockito.verify(userService, Mockito.times(1)).createAll(Mockito.anyList());
+    }
+
+    @Test
+    void drainRecordsPerItemFailures() {
+        UserIngestionQueue queue = queue(10);
+        when(userService.createAll(List.of(first, second))).thenReturn(List.of(
+                BatchItemResult.created(0, first.setId(1L)),
+                BatchItemResult.failed(1, new ExceptionBody("Email already in use"))));
+
+        IngestionTicket firstTicket = queue.submit(first);
+        IngestionTicket secondTicket = queue.submit(second);
+        queue.drain();
+
+        assertEquals(IngestionTicket.Status.CREATED, queue.find(firstTicket.getId()).orElseThrow().getStatus());
+        IngestionTicket failed = queue.find(secondTicket.getId()).orElseThrow();
+        assertEquals(IngestionTicket.Status.FAILED, failed.getStatus());
+        assertEquals("Email already in use", failed.getError().getMessage());
+    }
+
+    @Test
+    void submitRejectsWhenQueueIsFull() {
+        UserIngestionQueue queue = queue(1);
+        queue.submit(first);
+
+        assertThrows(ServiceUnavailableException.class, () -> queue.submit(second));
+        assertEquals(1.0, meterRegistry.get("users.ingestion.rejected").counter().count());
+        assertEquals(1.0, meterRegistry.get("users.ingestion.queue.depth").gauge().value());
+    }
+
+    @Test
+    void stopRejectsNewSubmissionsAndFailsThoseLeftInQueue() throws InterruptedException {
+        UserIngestionQueue queue = queue(10);
+        IngestionTicket ticket = queue.submit(first);
+
+        queue.stop();
+
+        IngestionTicket failed = queue.find(ticket.getId()).orElseThrow();
+        assertEquals(IngestionTicket.Status.FAILED, failed.getStatus());
+        assertEquals(UserIngestionQueue.NOT_WRITTEN_MESSAGE, failed.getError().getMessage());
+        ServiceUnavailableException rejected = assertThrows(ServiceUnavailableException.class,
+                () -> queue.submit(second));
+        assertEquals(UserIngestionQueue.SHUTTING_DOWN_MESSAGE, rejected.getMessage());
+        Mockito.verifyNoInteractions(userService);
+    }
+
+    @Test
+    void stopLeavesNoTicketQueuedWhenSubmissionsRaceIt() throws InterruptedException {
+        UserIngestionQueue queue = queue(100_000);
+        List<IngestionTicket> accepted = new CopyOnWriteArrayList<>();
+        List<Thread> submitters = new ArrayList<>();
+        CountDownLatch submitting = new CountDownLatch(4);
+        for (int i = 0; i < 4; i++) {
+            submitters.add(Thread.ofPlatform().start(() -> {
+                submitting.countDown();
+                try {
+                    while (true) {
+                        accepted.add(queue.submit(first));
+                    }
+                } catch (ServiceUnavailableException e) {
+                    // shutting down
+                }
+            }));
+        }
+        submitting.await();
+
+        queue.stop();
+        for (Thread submitter : submitters) {
+            submitter.join();
+        }
+
+        for (IngestionTicket ticket : accepted) {
+            assertEquals(IngestionTicket.Status.FAILED, queue.find(ticket.getId()).orElseThrow().getStatus());
+        }
+    }
+
+    private UserIngestionQueue queue(int capacity) {
+        return new UserIngestionQueue(userService, meterRegistry, capacity, 500,
+                Duration.ofMillis(1), Duration.ofMinutes(1), Duration.ofSeconds(1));
+    }
+
+    private static UserDto user(String email) {
+        return new UserDto()
+                .setEmail(email)
+                .setFirstName("TestName")
+                .setSurname("TestSurname")
+                .setBirthDate(LocalDate.of(1999, 9, 9));
+    }
+}
@@ -1,12 +1,25 @@
 package com.clearsolutions.usersapi.service;
 
+import com.clearsolutions.usersapi.dto.BatchItemResult;
+import com.clearsolutions.usersapi.dto.CursorPage;
+import com.clearsolutions.usersapi.dto.UserCursor;
+import com.clearsolutions.usersapi.dto.BucketCountDto;
+import com.clearsolutions.usersapi.dto.StatsBucket;
 import com.clearsolutions.usersapi.dto.UserDto;
+import com.clearsolutions.usersapi.dto.UserStatsDto;
 import com.clearsolutions.usersapi.entity.User;
+import com.clearsolutions.usersapi.exceptions.PreconditionFailedException;
 import com.clearsolutions.usersapi.exceptions.ResourceNotFoundException;
 import com.clearsolutions.usersapi.exceptions.UserEmailAlreadyInUseException;
+import com.clearsolutions.usersapi.index.EmailIndex;
+import com.clearsolutions.usersapi.index.UserSearchIndex;
 import com.clearsolutions.usersapi.mapper.UserMapper;
+import com.clearsolutions.usersapi.repository.BucketCount;
+import com.clearsolutions.usersapi.repository.PatchedUser;
 import com.clearsolutions.usersapi.repository.UserRepository;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
@@ -14,8 +27,15 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
@@ -30,14 +50,35 @@ class UserServiceTest {
     @MockBean
     private UserRepository userRepository;
 
+    @MockBean
+    private UserChangeOutbox userChangeOutbox;
+
+    @MockBean
+    private UserSearchIndex userSearchIndex;
+
     @Autowired
     private UserService userService;
 
     @Autowired
     private UserMapper userMapper;
 
+    @Autowired
+    private EmailIndex emailIndex;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     private static final Long ID = 1L;
+    private static final Long CACHED_ID = 42L;
+    private static final Long EVICTED_ID = 43L;
     private static final Integer EXCEPTED_ARRAY_SIZE = 2;
+    private static final int PAGE_LIMIT = 100;
     private static final LocalDate INVALID_DATE = LocalDate.now().minusYears(17);
     private static final LocalDate DATE_FROM = LocalDate.of(1999, 01, 01);
     private static final LocalDate DATE_TO = LocalDate.of(2005, 01, 01);
@@ -61,7 +102,7 @@ class UserServiceTest {
 
     @Test
     void create() {
-        when(userRepository.save(validUser)).thenReturn(validUser.setId(ID));
+        when(userRepository.saveAndFlush(validUser)).thenReturn(validUser.setId(ID));
         System.out.println(validUser.getBirthDate());
         UserDto resultUser = userService.create(validUser);
 
@@ -71,11 +112,41 @@ class UserServiceTest {
 
     @Test
     void createWithExistedEmail() {
+        emailIndex.add(validUser.getEmail());
         when(userRepository.findByEmail(validUser.getEmail())).thenReturn(Optional.of(validUser.setId(ID)));
 
         assertThrows(UserEmailAlreadyInUseException.class, () -> userService.create(validUser));
     }
 
+    @Test
+    void createSkipsEmailLookupWhenIndexMisses() {
+        User freshUser = validUser.setEmail("fresh@gmail.com");
+        when(userRepository.saveAndFlush(freshUser)).thenReturn(freshUser.setId(ID));
+
+        userService.create(freshUser);
+
+        Mockito.verify(userRepository, Mockito.never()).findByEmail(Mockito.any());
+        assertTrue(emailIndex.mightContain("Fresh@Gmail.com"));
+    }
+
+    @Test
+    void createWithEmailTakenConcurrently() {
+        User racingUser = validUser.setEmail("racing@gmail.com");
+        when(userRepository.saveAndFlush(racingUser)).thenThrow(emailConflict());
+
+        assertThrows(UserEmailAlreadyInUseException.class, () -> userService.create(racingUser));
+    }
+
+    @Test
+    void createDoesNotReportOtherViolationsAsEmailInUse() {
+        User user = validUser.setEmail("other-violation@gmail.com");
+        DataIntegrityViolationException violation = new DataIntegrityViolationException("not-null",
+                new ConstraintViolationException("null value", new SQLException(), "users_first_name_not_null"));
+        when(userRepository.saveAndFlush(user)).thenThrow(violation);
+
+        assertSame(violation, assertThrows(DataIntegrityViolationException.class, () -> userService.create(user)));
+    }
+
     @Test
     void createWithInvalidAge() {
         User userWithInvalidBirthDate = validUser.setBirthDate(INVALID_DATE);
@@ -83,12 +154,101 @@ class UserServiceTest {
         assertThrows(IllegalArgumentException.class, () -> userService.create(userWithInvalidBirthDate));
     }
 
+    @Test
+    void createAll() {
+        UserDto newUser = userMapper.toDto(validUser);
+        UserDto takenEmailUser = userMapper.toDto(updatedUser).setId(null);
+        UserDto duplicateInPayload = userMapper.toDto(validUser);
+        UserDto missingFields = new UserDto().setEmail("missing@gmail.com");
+        UserDto tooYoung = userMapper.toDto(validUser).setEmail("young@gmail.com").setBirthDate(INVALID_DATE);
+
+        emailIndex.add(updatedUser.getEmail());
+        when(userRepository.findExistingEmails(Mockito.anyCollection())).thenReturn(List.of(updatedUser.getEmail()));
+        when(userRepository.saveAll(Mockito.<User>anyList())).thenAnswer(invocation -> {
+            List<User> users = invocation.getArgument(0);
+            users.forEach(user -> user.setId(ID));
+            return users;
+        });
+
+        List<BatchItemResult> results = userService.createAll(
+                List.of(newUser, takenEmailUser, duplicateInPayload, missingFields, tooYoung));
+
+        assertThat(results).extracting(BatchItemResult::getStatus).containsExactly(
+                BatchItemResult.Status.CREATED,
+                BatchItemResult.Status.FAILED,
+                BatchItemResult.Status.FAILED,
+                BatchItemResult.Status.FAILED,
+                BatchItemResult.Status.FAILED);
+        assertEquals(ID, results.get(0).getUser().getId());
+        assertEquals("Email already in use", results.get(1).getError().getMessage());
+        assertEquals("Email already in use", results.get(2).getError().getMessage());
+        assertThat(results.get(3).getError().getErrors()).containsKeys("firstName", "surname", "birthDate");
+        assertEquals("User must be at least 18 years old.", results.get(4).getError().getMessage());
+        Mockito.verify(userRepository).findExistingEmails(Mockito.anyCollection());
+    }
+
+    @Test
+    void createAllRetriesOneByOneWhenEmailTakenConcurrently() {
+        UserDto first = userMapper.toDto(validUser).setEmail("first-racer@gmail.com");
+        UserDto second = userMapper.toDto(validUser).setEmail("second-racer@gmail.com");
+        when(userRepository.saveAll(Mockito.<User>anyList())).thenAnswer(invocation -> {
+            List<User> users = invocation.getArgument(0);
+            if (users.stream().anyMatch(user -> user.getEmail().equals(second.getEmail()))) {
+                throw emailConflict();
+            }
+            users.forEach(user -> user.setId(ID));
+            return users;
+        });
+
+        List<BatchItemResult> results = userService.createAll(List.of(first, second));
+
+        assertThat(results).extracting(BatchItemResult::getStatus).containsExactly(
+                BatchItemResult.Status.CREATED,
+                BatchItemResult.Status.FAILED);
+        assertEquals("Email already in use", results.get(1).getError().getMessage());
+        Mockito.verify(userRepository, Mockito.times(3)).saveAll(Mockito.<User>anyList());
+    }
+
+    @Test
+    void findByIdIsCached() {
+        when(userRepository.findById(CACHED_ID)).thenReturn(Optional.of(validUser.setId(CACHED_ID)));
+
+        UserDto first = userService.findById(CACHED_ID);
+        UserDto second = userService.findById(CACHED_ID);
+
+        assertEquals(userMapper.toDto(validUser), first);
+        assertEquals(first, second);
+        Mockito.verify(userRepository, Mockito.times(1)).findById(CACHED_ID);
+    }
+
+    @Test
+    void deleteEvictsCachedUserOnlyAfterCommit() {
+        when(userRepository.findById(EVICTED_ID)).thenReturn(Optional.of(validUser.setId(EVICTED_ID)));
+        when(userRepository.delete(EVICTED_ID, null)).thenReturn(Optional.of(validUser.getEmail()));
+        userService.findById(EVICTED_ID);
+        Cache cache = cacheManager.getCache(UserService.USERS_CACHE);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            userService.delete(EVICTED_ID, null);
+            assertNotNull(cache.get(EVICTED_ID));
+        });
+
+        assertNull(cache.get(EVICTED_ID));
+    }
+
+    @Test
+    void findByInvalidId() {
+        when(userRepository.findById(ID)).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> userService.findById(ID));
+    }
+
     @Test
     void update() {
         when(userRepository.findById(ID)).thenReturn(Optional.of(validUser.setId(ID)));
-        when(userRepository.save(updatedUser)).thenReturn(updatedUser);
+        when(userRepository.saveAndFlush(updatedUser)).thenReturn(updatedUser);
 
-        UserDto resultUser = userService.update(ID, updatedUser);
+        UserDto resultUser = userService.update(ID, updatedUser, null);
 
         assertNotNull(resultUser);
         assertEquals(userMapper.toDto(updatedUser), resultUser);
@@ -99,74 +259,229 @@ class UserServiceTest {
     void updateByInvalidId() {
         when(userRepository.findById(ID)).thenReturn(Optional.empty());
 
-        assertThrows(ResourceNotFoundException.class, () -> userService.update(ID, updatedUser));
+        assertThrows(ResourceNotFoundException.class, () -> userService.update(ID, updatedUser, null));
+    }
+
+    @Test
+    void updateWithStaleVersion() {
+        when(userRepository.findById(ID)).thenReturn(Optional.of(validUser.setId(ID).setVersion(2L)));
+
+        assertThrows(PreconditionFailedException.class, () -> userService.update(ID, updatedUser, 1L));
+        Mockito.verify(userRepository, Mockito.never()).saveAndFlush(Mockito.any());
     }
 
     @Test
     void updateWithInvalidBirthDate() {
         when(userRepository.findById(ID)).thenReturn(Optional.of(validUser));
 
-        assertThrows(IllegalArgumentException.class, () -> userService.update(ID, updatedUser.setBirthDate(INVALID_DATE)));
+        assertThrows(IllegalArgumentException.class, () -> userService.update(ID, updatedUser.setBirthDate(INVALID_DATE), null));
     }
 
 
     @Test
     void particularUpdate() {
-        when(userRepository.findById(ID)).thenReturn(Optional.of(validUser));
-
         User particularUpdatedUser = validUser.setId(updatedUser.getId())
                 .setEmail(updatedUser.getEmail())
                 .setFirstName(updatedUser.getFirstName())
                 .setSurname(updatedUser.getSurname())
                 .setBirthDate(updatedUser.getBirthDate());
-        when(userRepository.save(particularUpdatedUser)).thenReturn(particularUpdatedUser);
-
+        when(userRepository.patch(ID, updatedUser, null))
+                .thenReturn(Optional.of(new PatchedUser(particularUpdatedUser, "test@gmail.com")));
 
-        UserDto resultUser = userService.particularUpdate(ID, updatedUser);
+        UserDto resultUser = userService.particularUpdate(ID, updatedUser, null);
 
         assertNotNull(resultUser);
         assertEquals(userMapper.toDto(particularUpdatedUser), resultUser);
+        Mockito.verify(userRepository, Mockito.never()).findById(Mockito.any());
+        Mockito.verify(userRepository, Mockito.never()).save(Mockito.any());
+    }
 
+    @Test
+    void particularUpdateReleasesPreviousEmail() {
+        emailIndex.warmUp();
+        emailIndex.add("previous@gmail.com");
+        when(userRepository.patch(ID, updatedUser, null))
+                .thenReturn(Optional.of(new PatchedUser(updatedUser, "previous@gmail.com")));
+
+        userService.particularUpdate(ID, updatedUser, null);
+
+        assertFalse(emailIndex.mightContain("previous@gmail.com"));
+        assertTrue(emailIndex.mightContain(updatedUser.getEmail()));
     }
 
     @Test
     void particularUpdateByInvalidId() {
-        when(userRepository.findById(ID)).thenReturn(Optional.empty());
+        when(userRepository.patch(ID, updatedUser, null)).thenReturn(Optional.empty());
 
-        assertThrows(ResourceNotFoundException.class, () -> userService.particularUpdate(ID, updatedUser));
+        assertThrows(ResourceNotFoundException.class, () -> userService.particularUpdate(ID, updatedUser, null));
     }
 
+    @Test
+    void particularUpdateWithStaleVersion() {
+        when(userRepository.patch(ID, updatedUser, 1L)).thenReturn(Optional.empty());
+        when(userRepository.existsById(ID)).thenReturn(true);
+
+        assertThrows(PreconditionFailedException.class, () -> userService.particularUpdate(ID, updatedUser, 1L));
+    }
 
     @Test
-    void particularUpdateUserWithInvalidBirthDate() {
-        when(userRepository.findById(ID)).thenReturn(Optional.of(validUser));
+    void particularUpdateWithTakenEmail() {
+        when(userRepository.patch(ID, updatedUser, null)).thenThrow(emailConflict());
+
+        assertThrows(UserEmailAlreadyInUseException.class, () -> userService.particularUpdate(ID, updatedUser, null));
+    }
 
-        assertThrows(IllegalArgumentException.class, () -> userService.particularUpdate(ID, updatedUser.setBirthDate(INVALID_DATE)));
+    @Test
+    void particularUpdateUserWithInvalidBirthDate() {
+        assertThrows(IllegalArgumentException.class, () -> userService.particularUpdate(ID, updatedUser.setBirthDate(INVALID_DATE), null));
+        Mockito.verify(userRepository, Mockito.never()).patch(Mockito.any(), Mockito.any(), Mockito.any());
     }
 
     @Test
     void delete() {
-        when(userRepository.findById(ID)).thenReturn(Optional.of(validUser));
+        when(userRepository.delete(ID, null)).thenReturn(Optional.of(validUser.getEmail()));
+
+        assertDoesNotThrow(() -> userService.delete(ID, null));
+        Mockito.verify(userChangeOutbox).recordDeleted(ID);
+    }
+
+    @Test
+    void deleteReleasesEmail() {
+        emailIndex.warmUp();
+        emailIndex.add("deleted@gmail.com");
+        when(userRepository.delete(ID, null)).thenReturn(Optional.of("deleted@gmail.com"));
 
-        assertDoesNotThrow(() -> userService.delete(ID));
+        userService.delete(ID, null);
+
+        assertFalse(emailIndex.mightContain("deleted@gmail.com"));
     }
 
     @Test
     void deleteByInvalidId() {
-        when(userRepository.findById(ID)).thenReturn(Optional.empty());
+        when(userRepository.delete(ID, null)).thenReturn(Optional.empty());
 
-        assertThrows(ResourceNotFoundException.class, () -> userService.delete(ID));
+        assertThrows(ResourceNotFoundException.class, () -> userService.delete(ID, null));
+    }
+
+    @Test
+    void deleteWithStaleVersion() {
+        when(userRepository.delete(ID, 1L)).thenReturn(Optional.empty());
+        when(userRepository.existsById(ID)).thenReturn(true);
+
+        assertThrows(PreconditionFailedException.class, () -> userService.delete(ID, 1L));
     }
 
 
     @Test
     void findByDateOfBirthBetween() {
-        when(userRepository.findByBirthDateBetween(Mockito.any(), Mockito.any())).thenReturn(List.of(validUser, updatedUser));
+        when(userRepository.findDtosByBirthDateBetween(Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenReturn(List.of(userMapper.toDto(validUser), userMapper.toDto(updatedUser)));
 
-        List<UserDto> result = userService.findByDateOfBirthBetween(DATE_FROM, DATE_TO);
+        CursorPage<UserDto> result = userService.findByDateOfBirthBetween(DATE_FROM, DATE_TO, null, PAGE_LIMIT);
 
         assertNotNull(result);
-        assertThat(result).hasSize(EXCEPTED_ARRAY_SIZE);
+        assertThat(result.getContent()).hasSize(EXCEPTED_ARRAY_SIZE);
+        assertNull(result.getNextCursor());
+
+    }
+
+    @Test
+    void searchFallsBackToDatabaseWhenIndexIsNotBuilt() {
+        when(userRepository.findDtosByPrefix("up\\_%", PageRequest.of(0, 20)))
+                .thenReturn(List.of(userMapper.toDto(updatedUser)));
+
+        List<UserDto> result = userService.search("Up_", 20);
+
+        assertEquals(List.of(userMapper.toDto(updatedUser)), result);
+        Mockito.verify(userRepository, Mockito.never()).findDtosByIdIn(Mockito.any());
+    }
+
+    @Test
+    void searchFetchesMoreFromIndexWhenHitsAreStale() {
+        when(userSearchIndex.isReady()).thenReturn(true);
+        when(userSearchIndex.find("name", 4)).thenReturn(List.of(1L, 2L, 3L, 4L));
+        when(userSearchIndex.find("name", 8)).thenReturn(List.of(1L, 2L, 3L, 4L, 5L, 6L));
+        when(userRepository.findDtosByIdIn(List.of(1L, 2L, 3L, 4L))).thenReturn(List.of(named(1L)));
+        when(userRepository.findDtosByIdIn(List.of(5L, 6L))).thenReturn(List.of(named(5L), named(6L)));
+
+        List<UserDto> result = userService.search("name", 2);
+
+        assertThat(result).extracting(UserDto::getId).containsExactly(1L, 5L);
+        Mockito.verify(userRepository, Mockito.never()).findDtosByPrefix(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    void findByDateOfBirthBetweenIsInstrumented() {
+        when(userRepository.findDtosByBirthDateBetween(Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenReturn(List.of(userMapper.toDto(validUser)));
+
+        userService.findByDateOfBirthBetween(DATE_FROM, DATE_TO, null, PAGE_LIMIT);
+
+        assertNotNull(meterRegistry.find("users.service")
+                .tag("operation", "findByDateOfBirthBetween").timer());
+        assertNotNull(meterRegistry.find("users.range.result.size")
+                .tag("source", "database").summary());
+    }
+
+    @Test
+    void findByDateOfBirthBetweenReturnsNextCursorWhenMoreRowsExist() {
+        User lastOnPage = validUser.setId(ID);
+        User firstOnNextPage = updatedUser.setId(ID + 1);
+        when(userRepository.findDtosByBirthDateBetween(Mockito.any(), Mockito.any(), Mockito.any()))
+                .thenReturn(List.of(userMapper.toDto(lastOnPage), userMapper.toDto(firstOnNextPage)));
+
+        CursorPage<UserDto> result = userService.findByDateOfBirthBetween(DATE_FROM, DATE_TO, null, 1);
+
+        assertThat(result.getContent()).hasSize(1);
+        assertEquals(new UserCursor(lastOnPage.getBirthDate(), ID), UserCursor.decode(result.getNextCursor()));
+    }
+
+    @Test
+    void findByDateOfBirthBetweenSeeksPastCursor() {
+        UserCursor cursor = new UserCursor(LocalDate.of(2000, 1, 1), ID);
+        when(userRepository.findDtosByBirthDateBetweenAfter(Mockito.eq(DATE_FROM), Mockito.eq(DATE_TO),
+                Mockito.eq(cursor.getBirthDate()), Mockito.eq(ID), Mockito.any()))
+                .thenReturn(List.of(userMapper.toDto(updatedUser)));
+
+        CursorPage<UserDto> result = userService.findByDateOfBirthBetween(DATE_FROM, DATE_TO, cursor, PAGE_LIMIT);
+
+        assertThat(result.getContent()).hasSize(1);
+        assertFalse(result.hasNext());
+    }
+
+    @Test
+    void countByDateOfBirthBetween() {
+        when(userRepository.countByBirthYear(DATE_FROM, DATE_TO))
+                .thenReturn(List.of(bucketCount("1999", 3), bucketCount("2000", 5)));
+
+        UserStatsDto stats = userService.countByDateOfBirthBetween(DATE_FROM, DATE_TO, StatsBucket.YEAR);
+
+        assertEquals(8, stats.getTotal());
+        assertEquals(List.of(new BucketCountDto("1999", 3), new BucketCountDto("2000", 5)), stats.getCounts());
+        Mockito.verify(userRepository, Mockito.never()).findDtosByBirthDateBetween(Mockito.any(), Mockito.any(), Mockito.any());
+    }
+
+    private static BucketCount bucketCount(String bucket, long count) {
+        return new BucketCount() {
+            @Override
+            public String getBucket() {
+                return bucket;
+            }
+
+            @Override
+            public Long getCount() {
+                return count;
+            }
+        };
+    }
+
+    private static UserDto named(Long id) {
+        return new UserDto().setId(id).setFirstName("Name" + id).setSurname("Surname" + id)
+                .setEmail("named" + id + "@gmail.com");
+    }
 
+    private static DataIntegrityViolationException emailConflict() {
+        return new DataIntegrityViolationException("duplicate key",
+                new ConstraintViolationException("duplicate key", new SQLException(), User.EMAIL_UNIQUE_INDEX));
     }
-}
\ No newline at end of file
+}